@@ -0,0 +1,154 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.benchmark;
+
+import java.util.List;
+
+/**
+ * Copy of the metric implementations before RelevanceSet: every hit test is List.contains on the ground truth.
+ * The List overloads of the library now index the ground truth, so these copies are the baseline of the speedup.
+ * Do not optimize them.
+ *
+ * @author THNghiep
+ */
+class BaselineMetrics {
+
+    // Prevent instantiation.
+    private BaselineMetrics() {
+    }
+
+    /**
+     * Metric of one rank list against ground truth.
+     */
+    interface Metric {
+
+        double compute(List input, List groundTruth) throws Exception;
+    }
+
+    /**
+     * Mean metric over rank lists sharing one ground truth, skipping empty rank lists.
+     *
+     * @param input
+     * @param groundTruth
+     * @param metric
+     * @return
+     * @throws Exception
+     */
+    static double computeMeanSharedGroundTruth(List<List> input, List groundTruth, Metric metric) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        double sum = 0;
+        int numInput = 0;
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                sum += metric.compute(input.get(i), groundTruth);
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sum / numInput;
+    }
+
+    static double computeNDCG(List input, List groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        double dcg = 0.0;
+        int nK = Math.min(k, input.size());
+        for (int i = 0; i < nK; i++) {
+            if (groundTruth.contains(input.get(i))) {
+                dcg += Math.log(2) / Math.log(i + 2);
+            }
+        }
+
+        double idcg = 0.0;
+        for (int i = 0; i < k; i++) {
+            idcg += Math.log(2) / Math.log(i + 2);
+        }
+        return dcg / idcg;
+    }
+
+    static double computeAPAtK(List input, List groundTruth, int k) {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        double apk = 0.0;
+        int nK = Math.min(k, input.size());
+        int num_hits = 0;
+        for (int i = 0; i < nK; i++) {
+            if (groundTruth.contains(input.get(i))) {
+                num_hits += 1;
+                apk += (double) num_hits / (i + 1);
+            }
+        }
+        return apk / Math.min(nK, groundTruth.size());
+    }
+
+    static double computeRR(List input, List groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        for (int i = 0; i < input.size(); i++) {
+            if (groundTruth.contains(input.get(i))) {
+                return (double) 1 / (i + 1);
+            }
+        }
+        return 0.0;
+    }
+
+    static double computePrecisionAtK(List input, List groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        double tp = 0.0;
+        int nN = Math.min(k, input.size());
+        for (int i = 0; i < nN; i++) {
+            if (groundTruth.contains(input.get(i))) {
+                tp++;
+            }
+        }
+        return tp / k;
+    }
+
+    static double computeRecallAtK(List input, List groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        // Each ground truth item is searched in the top n rank list.
+        double tp = 0.0;
+        int nN = Math.min(k, input.size());
+        List topNRankList = input.subList(0, nN);
+        for (int i = 0; i < groundTruth.size(); i++) {
+            if (topNRankList.contains(groundTruth.get(i))) {
+                tp++;
+            }
+        }
+        return tp / groundTruth.size();
+    }
+
+    static double computeFMeasureAtK(List input, List groundTruth, double beta, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+
+        double precision = computePrecisionAtK(input, groundTruth, k);
+        double recall = computeRecallAtK(input, groundTruth, k);
+        double f = ((1 + beta) * precision * recall) / ((beta * beta * precision) + recall);
+        if (Double.isNaN(f) || (Double.isInfinite(f))) {
+            f = 0.0;
+        }
+        return f;
+    }
+}
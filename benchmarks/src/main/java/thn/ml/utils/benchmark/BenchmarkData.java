@@ -0,0 +1,96 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic rank lists and ground truth for benchmarks.
+ *
+ * @author THNghiep
+ */
+class BenchmarkData {
+
+    // Prevent instantiation.
+    private BenchmarkData() {
+    }
+
+    /**
+     * Sample n distinct ids from [0, range) in random order.
+     *
+     * @param random
+     * @param range
+     * @param n
+     * @return
+     */
+    static int[] sampleDistinct(SplittableRandom random, int range, int n) {
+        if (n * 4 < range) {
+            // Sparse sample: rejection is cheaper than shuffling the whole range.
+            Set<Integer> seen = new HashSet<>(2 * n);
+            int[] sample = new int[n];
+            int count = 0;
+            while (count < n) {
+                int id = random.nextInt(range);
+                if (seen.add(id)) {
+                    sample[count++] = id;
+                }
+            }
+            return sample;
+        }
+
+        // Dense sample: partial Fisher-Yates shuffle.
+        int[] ids = new int[range];
+        for (int i = 0; i < range; i++) {
+            ids[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            int j = i + random.nextInt(range - i);
+            int temp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = temp;
+        }
+        int[] sample = new int[n];
+        System.arraycopy(ids, 0, sample, 0, n);
+        return sample;
+    }
+
+    static List<Integer> toList(int[] array) {
+        List<Integer> list = new ArrayList<>(array.length);
+        for (int item : array) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Rank lists of numQuery queries, each of length k, over catalog [0, catalogSize).
+     *
+     * @param random
+     * @param numQuery
+     * @param k
+     * @param catalogSize
+     * @return
+     */
+    static List<List> rankLists(SplittableRandom random, int numQuery, int k, int catalogSize) {
+        List<List> rankLists = new ArrayList<>(numQuery);
+        for (int q = 0; q < numQuery; q++) {
+            rankLists.add(toList(sampleDistinct(random, Math.max(catalogSize, k), k)));
+        }
+        return rankLists;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import thn.research.textutility.evaluation.AveragePrecision;
+import thn.research.textutility.evaluation.FMeasure;
+import thn.research.textutility.evaluation.IntRelevanceSet;
+import thn.research.textutility.evaluation.MultiMetricEvaluator;
+import thn.research.textutility.evaluation.MultiMetricResult;
+import thn.research.textutility.evaluation.NDCG;
+import thn.research.textutility.evaluation.Precision;
+import thn.research.textutility.evaluation.Recall;
+import thn.research.textutility.evaluation.ReciprocalRank;
+import thn.research.textutility.evaluation.RelevanceSet;
+
+/**
+ * Cost of evaluating one rank list, for each metric class, by rank list length k and ground truth size.
+ * Compare the baseline List.contains implementation, boxed List ground truth (indexed on every call),
+ * prebuilt RelevanceSet, and primitive int[] ids.
+ *
+ * @author THNghiep
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int k;
+
+    @Param({"10", "1000", "10000"})
+    public int groundTruthSize;
+
+    // Ratio of catalog size to ground truth size, i.e., about 1 hit per this many ranked items.
+    private static final int CATALOG_RATIO = 5;
+
+    private List<Integer> rankList;
+    private List<Integer> groundTruth;
+    private RelevanceSet relevanceSet;
+    private int[] rankArray;
+    private IntRelevanceSet intRelevanceSet;
+    private MultiMetricEvaluator multiMetricEvaluator;
+    private MultiMetricResult multiMetricResult;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        int catalogSize = groundTruthSize * CATALOG_RATIO;
+
+        int[] groundTruthArray = BenchmarkData.sampleDistinct(random, catalogSize, groundTruthSize);
+        rankArray = BenchmarkData.sampleDistinct(random, Math.max(catalogSize, k), k);
+
+        groundTruth = BenchmarkData.toList(groundTruthArray);
+        rankList = BenchmarkData.toList(rankArray);
+        relevanceSet = RelevanceSet.of(groundTruth);
+        intRelevanceSet = new IntRelevanceSet(groundTruthArray);
+        multiMetricEvaluator = new MultiMetricEvaluator(new int[]{k}, 1);
+        multiMetricResult = multiMetricEvaluator.createResult();
+    }
+
+    @Benchmark
+    public double ndcgBaseline() throws Exception {
+        return BaselineMetrics.computeNDCG(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double ndcgList() throws Exception {
+        return NDCG.computeNDCG(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double ndcgRelevanceSet() throws Exception {
+        return NDCG.computeNDCG(rankList, relevanceSet, k);
+    }
+
+    @Benchmark
+    public double ndcgPrimitive() throws Exception {
+        return NDCG.computeNDCG(rankArray, intRelevanceSet, k);
+    }
+
+    @Benchmark
+    public double apBaseline() throws Exception {
+        return BaselineMetrics.computeAPAtK(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double apList() throws Exception {
+        return AveragePrecision.computeAPAtK(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double apRelevanceSet() throws Exception {
+        return AveragePrecision.computeAPAtK(rankList, relevanceSet, k);
+    }
+
+    @Benchmark
+    public double apPrimitive() throws Exception {
+        return AveragePrecision.computeAPAtK(rankArray, intRelevanceSet, k);
+    }
+
+    @Benchmark
+    public double rrBaseline() throws Exception {
+        return BaselineMetrics.computeRR(rankList, groundTruth);
+    }
+
+    @Benchmark
+    public double rrList() throws Exception {
+        return ReciprocalRank.computeRR(rankList, groundTruth);
+    }
+
+    @Benchmark
+    public double rrRelevanceSet() throws Exception {
+        return ReciprocalRank.computeRR(rankList, relevanceSet);
+    }
+
+    @Benchmark
+    public double rrPrimitive() throws Exception {
+        return ReciprocalRank.computeRR(rankArray, intRelevanceSet);
+    }
+
+    @Benchmark
+    public double precisionBaseline() throws Exception {
+        return BaselineMetrics.computePrecisionAtK(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double precisionList() throws Exception {
+        return Precision.computePrecisionAtK(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double precisionRelevanceSet() throws Exception {
+        return Precision.computePrecisionAtK(rankList, relevanceSet, k);
+    }
+
+    @Benchmark
+    public double precisionPrimitive() throws Exception {
+        return Precision.computePrecisionAtK(rankArray, intRelevanceSet, k);
+    }
+
+    @Benchmark
+    public double recallBaseline() throws Exception {
+        return BaselineMetrics.computeRecallAtK(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double recallList() throws Exception {
+        return Recall.computeRecallAtK(rankList, groundTruth, k);
+    }
+
+    @Benchmark
+    public double recallRelevanceSet() throws Exception {
+        return Recall.computeRecallAtK(rankList, relevanceSet, k);
+    }
+
+    @Benchmark
+    public double recallPrimitive() throws Exception {
+        return Recall.computeRecallAtK(rankArray, intRelevanceSet, k);
+    }
+
+    @Benchmark
+    public double fMeasureBaseline() throws Exception {
+        return BaselineMetrics.computeFMeasureAtK(rankList, groundTruth, 1, k);
+    }
+
+    @Benchmark
+    public double fMeasureList() throws Exception {
+        return FMeasure.computeFMeasureAtK(rankList, groundTruth, 1, k);
+    }
+
+    @Benchmark
+    public double fMeasureRelevanceSet() throws Exception {
+        return FMeasure.computeFMeasureAtK(rankList, relevanceSet, 1, k);
+    }
+
+    @Benchmark
+    public double fMeasurePrimitive() throws Exception {
+        return FMeasure.computeFMeasureAtK(rankArray, intRelevanceSet, 1, k);
+    }
+
+    @Benchmark
+    public MultiMetricResult allMetricsSinglePass() throws Exception {
+        multiMetricEvaluator.evaluate(rankList, relevanceSet, multiMetricResult);
+        return multiMetricResult;
+    }
+
+    @Benchmark
+    public RelevanceSet buildRelevanceSet() {
+        return RelevanceSet.of(groundTruth);
+    }
+
+    @Benchmark
+    public IntRelevanceSet buildIntRelevanceSet() {
+        return new IntRelevanceSet(BenchmarkData.toArray(groundTruth));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import thn.research.textutility.evaluation.AveragePrecision;
+import thn.research.textutility.evaluation.FMeasure;
+import thn.research.textutility.evaluation.MultiMetricEvaluator;
+import thn.research.textutility.evaluation.MultiMetricResult;
+import thn.research.textutility.evaluation.NDCG;
+import thn.research.textutility.evaluation.Precision;
+import thn.research.textutility.evaluation.Recall;
+import thn.research.textutility.evaluation.ReciprocalRank;
+import thn.research.textutility.evaluation.SharedGroundTruthEvaluator;
+
+/**
+ * Cost of mean metrics over many rank lists sharing one ground truth, by number of queries,
+ * rank list length k and ground truth size.
+ * Compare the baseline List.contains implementation, the static shared-ground-truth methods,
+ * a prebuilt SharedGroundTruthEvaluator, the fork-join parallel variants and the single-pass multi-metric evaluator.
+ *
+ * @author THNghiep
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SharedGroundTruthBenchmark {
+
+    @Param({"1000", "100000"})
+    public int numQuery;
+
+    @Param({"10", "100"})
+    public int k;
+
+    @Param({"100", "10000"})
+    public int groundTruthSize;
+
+    // Ratio of catalog size to ground truth size, i.e., about 1 hit per this many ranked items.
+    private static final int CATALOG_RATIO = 5;
+
+    private List<List> rankLists;
+    private List<Integer> groundTruth;
+    private SharedGroundTruthEvaluator evaluator;
+    private MultiMetricEvaluator multiMetricEvaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        int catalogSize = groundTruthSize * CATALOG_RATIO;
+
+        groundTruth = BenchmarkData.toList(BenchmarkData.sampleDistinct(random, catalogSize, groundTruthSize));
+        rankLists = BenchmarkData.rankLists(random, numQuery, k, catalogSize);
+        evaluator = new SharedGroundTruthEvaluator(groundTruth);
+        multiMetricEvaluator = new MultiMetricEvaluator(new int[]{k}, 1);
+    }
+
+    @Benchmark
+    public double meanNDCGBaseline() throws Exception {
+        return BaselineMetrics.computeMeanSharedGroundTruth(rankLists, groundTruth, (input, truth) -> BaselineMetrics.computeNDCG(input, truth, k));
+    }
+
+    @Benchmark
+    public double meanNDCGStatic() throws Exception {
+        return NDCG.computeMeanNDCGAtKSharedGroundTruth(rankLists, groundTruth, k);
+    }
+
+    @Benchmark
+    public double meanNDCGEvaluator() throws Exception {
+        return evaluator.computeMeanNDCGAtK(rankLists, k);
+    }
+
+    @Benchmark
+    public double meanNDCGParallel() throws Exception {
+        return NDCG.computeMeanNDCGAtKSharedGroundTruthParallel(rankLists, groundTruth, k, null);
+    }
+
+    @Benchmark
+    public double mapBaseline() throws Exception {
+        return BaselineMetrics.computeMeanSharedGroundTruth(rankLists, groundTruth, (input, truth) -> BaselineMetrics.computeAPAtK(input, truth, k));
+    }
+
+    @Benchmark
+    public double mapStatic() throws Exception {
+        return AveragePrecision.computeMAPAtKSharedGroundTruth(rankLists, groundTruth, k);
+    }
+
+    @Benchmark
+    public double mapEvaluator() throws Exception {
+        return evaluator.computeMAPAtK(rankLists, k);
+    }
+
+    @Benchmark
+    public double mapParallel() throws Exception {
+        return AveragePrecision.computeMAPAtKSharedGroundTruthParallel(rankLists, groundTruth, k, null);
+    }
+
+    @Benchmark
+    public double mrrBaseline() throws Exception {
+        return BaselineMetrics.computeMeanSharedGroundTruth(rankLists, groundTruth, BaselineMetrics::computeRR);
+    }
+
+    @Benchmark
+    public double mrrStatic() throws Exception {
+        return ReciprocalRank.computeMRRSharedGroundTruth(rankLists, groundTruth);
+    }
+
+    @Benchmark
+    public double mrrEvaluator() throws Exception {
+        return evaluator.computeMRR(rankLists);
+    }
+
+    @Benchmark
+    public double meanPrecisionBaseline() throws Exception {
+        return BaselineMetrics.computeMeanSharedGroundTruth(rankLists, groundTruth, (input, truth) -> BaselineMetrics.computePrecisionAtK(input, truth, k));
+    }
+
+    @Benchmark
+    public double meanPrecisionStatic() throws Exception {
+        return Precision.computeMeanPrecisionAtKSharedGroundTruth(rankLists, groundTruth, k);
+    }
+
+    @Benchmark
+    public double meanRecallBaseline() throws Exception {
+        return BaselineMetrics.computeMeanSharedGroundTruth(rankLists, groundTruth, (input, truth) -> BaselineMetrics.computeRecallAtK(input, truth, k));
+    }
+
+    @Benchmark
+    public double meanRecallStatic() throws Exception {
+        return Recall.computeMeanRecallAtKSharedGroundTruth(rankLists, groundTruth, k);
+    }
+
+    @Benchmark
+    public double meanFMeasureBaseline() throws Exception {
+        return BaselineMetrics.computeMeanSharedGroundTruth(rankLists, groundTruth, (input, truth) -> BaselineMetrics.computeFMeasureAtK(input, truth, 1, k));
+    }
+
+    @Benchmark
+    public double meanFMeasureStatic() throws Exception {
+        return FMeasure.computeMeanFMeasureAtKSharedGroundTruth(rankLists, groundTruth, 1, k);
+    }
+
+    @Benchmark
+    public double meanFMeasureEvaluator() throws Exception {
+        return evaluator.computeMeanFMeasureAtK(rankLists, 1, k);
+    }
+
+    @Benchmark
+    public MultiMetricResult allMetricsSinglePass() throws Exception {
+        return multiMetricEvaluator.evaluateMeanSharedGroundTruth(rankLists, groundTruth);
+    }
+}
@@ -25,8 +25,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
@@ -35,7 +33,7 @@ import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import org.apache.commons.io.FileExistsException;
 import org.apache.commons.io.FileUtils;
-import thn.research.textutility.general.GeneralUtility;
+import thn.research.textutility.general.ExecutionService;
 import thn.research.textutility.general.InternetUtility;
 import thn.research.textutility.io.FileUtility;
 import thn.research.textutility.general.NumericUtility;
@@ -91,6 +89,9 @@ public class MAGPDFDownloader {
     private static final Logger LOGGER_MISC = Logger.getLogger(MAGPDFDownloader.class.getName() + "_misc");
     
     private static Set<String> downloadedPaperId = ConcurrentHashMap.newKeySet();
+
+    // Queued downloads per thread of an own pool before submission blocks.
+    private static final int IO_QUEUE_PER_THREAD = 16;
     
     /**
      * Parallel version of downloadPDFMAG(.).
@@ -116,13 +117,15 @@ public class MAGPDFDownloader {
     public static void downloadPDFMAGParallel(String urlListFilePath, String dirPathOutput, String tempDirPathOutput, boolean overwrite, List<String> forbiddenDomain, List<String> rateLimitDomain, int waitingSecond, int maxConsecutiveCheck, int connectionTimeout, int readTimeout, int threadPoolSize, long fromLineNum, long toLineNum) throws Exception {
         LOGGER.log(Level.INFO, "Download Start.");
         
-        // Thread pool.
-        ExecutorService executor;
+        // Thread pool: the shared I/O pool, or an own pool of the given size.
+        // Both have bounded queues: submission blocks when the queue is full.
+        ExecutionService.IoPool executor;
         if (threadPoolSize == 0) {
-            executor = Executors.newFixedThreadPool(GeneralUtility.getNumOfCore() - 1);
+            executor = ExecutionService.getIoPool();
         } else {
-            executor = Executors.newFixedThreadPool(threadPoolSize);
+            executor = ExecutionService.newIoPool(threadPoolSize, threadPoolSize * IO_QUEUE_PER_THREAD);
         }
+        ExecutionService.TaskGroup tasks = new ExecutionService.TaskGroup(executor);
 
         List<String> mimeType = Arrays.asList("application/pdf", "application/x-pdf");
 
@@ -204,11 +207,8 @@ public class MAGPDFDownloader {
                 String tempFilePath = tempDirPathOutput + File.separator + paperId + ".pdf";
 
                 // Download in parallel.
-                // Note that normally, ExecutorService does not block when thread pool is full.
-                // So the number of processed line while in this loop is not real.
-                // Moreover, after submitting all url to executor, the loop will finish 
-                // and executor will be shutdowned although all urls are not executed.
-                executor.submit(() -> {
+                // Submission blocks when the pool queue is full, so the number of processed line is close to real.
+                tasks.execute(() -> {
                     try {
                         downloadFile(paperId, url, filePath, tempFilePath, mimeType, connectionTimeout, readTimeout, forbiddenDomain);
                     } catch (Exception e) {
@@ -217,17 +217,14 @@ public class MAGPDFDownloader {
                 });
             }
 
-            executor.shutdown();
-            // This while loop may wait forever, e.g., some urls take too long to process, or forever?
-            while (!executor.isTerminated()) {
+            // Block until all downloads are done. Each download is bounded by connection and read timeouts.
+            tasks.await();
+        } finally {
+            if (threadPoolSize != 0) {
+                ExecutionService.shutdownAndAwait(executor);
             }
-            // Only wait some time, do not use this.
-//            executor.awaitTermination(600, TimeUnit.SECONDS);
-//            if (!executor.isTerminated()) {
-//                LOGGER.log(Level.SEVERE, "Waiting for too long: Have to cancel unfinished task.");
-//            }
-//            executor.shutdownNow();
         }
+        LOGGER.log(Level.INFO, "Pool metrics: " + executor.getMetrics());
 
         LOGGER.log(Level.INFO, "Download Finish. Processed line: " + (count - 1));
     }
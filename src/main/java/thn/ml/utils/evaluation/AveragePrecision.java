@@ -6,6 +6,7 @@
 package thn.research.textutility.evaluation;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class content methods for computing metric related to AveragePrecision.
@@ -35,18 +36,8 @@ public class AveragePrecision {
             return 0.0;
         }
 
-        double sumMAP = 0;
-        int numInput = 0;
-        for (int i = 0; i < input.size(); i++) {
-            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
-                numInput++;
-                sumMAP += computeAPAtK(input.get(i), groundTruth, k);
-            }
-        }
-        if (numInput == 0) {
-            return 0;
-        }
-        return sumMAP / numInput;
+        // Index the shared ground truth once for all rank lists.
+        return new SharedGroundTruthEvaluator(groundTruth).computeMAPAtK(input, k);
     }
 
     /**
@@ -77,6 +68,66 @@ public class AveragePrecision {
         return sumMAP / numInput;
     }
 
+    /**
+     * Compute AP at K of each query, e.g., for significance tests.
+     * Null or empty rank list scores 0, so score vectors of different rankers stay aligned by query.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return score of each rank list in input.
+     * @throws Exception 
+     */
+    public static double[] computeAPAtKPerQuery(List<List> input, List<List> groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null)) {
+            return new double[0];
+        }
+
+        double[] scores = new double[input.size()];
+        for (int i = 0; i < input.size(); i++) {
+            scores[i] = computeAPAtK(input.get(i), groundTruth.get(i), k);
+        }
+        return scores;
+    }
+
+    /**
+     * Compute MAP at K in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMAPAtKParallel(List<List> input, List<List> groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        return ParallelEvaluation.computeMean(input, i -> computeAPAtK(input.get(i), groundTruth.get(i), k), pool);
+    }
+
+    /**
+     * Compute MAP at K with shared ground truth in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMAPAtKSharedGroundTruthParallel(List<List> input, List groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // Index the shared ground truth once, then share it read-only between threads.
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        return ParallelEvaluation.computeMean(input, i -> computeAPAtK(input.get(i), sharedGroundTruth, k), pool);
+    }
+
     /**
      * This method computes average precision with threshold k.
      *
@@ -89,6 +140,22 @@ public class AveragePrecision {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
             return 0.0;
         }
+
+        return computeAPAtK(input, RelevanceSet.of(groundTruth), k);
+    }
+
+    /**
+     * This method computes average precision with threshold k, with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     */
+    public static double computeAPAtK(List input, RelevanceSet groundTruth, int k) {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
         
         // return value.
         double apk = 0.0;
@@ -119,8 +186,66 @@ public class AveragePrecision {
         } else {
             numRelevantDocument = groundTruth.size();
         }
-        apk = (double) apk / numRelevantDocument;
+        apk = apk / numRelevantDocument;
         
         return apk;
     }
+
+    /**
+     * This method computes average precision with threshold k on primitive item ids, without boxing.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     */
+    public static double computeAPAtK(int[] input, IntRelevanceSet groundTruth, int k) {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        double apk = 0.0;
+
+        // only consider the real ranklist size.
+        int nK = Math.min(k, input.length);
+        int num_hits = 0;
+        for (int i = 0; i < nK; i++) {
+            if (groundTruth.containsInt(input[i])) {
+                num_hits += 1;
+                apk += (double) num_hits / (i + 1);
+            }
+        }
+        
+        // average by number of relevant document.
+        return apk / Math.min(nK, groundTruth.size());
+    }
+
+    /**
+     * This method computes average precision with threshold k on primitive item ids, without boxing.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     */
+    public static double computeAPAtK(long[] input, LongRelevanceSet groundTruth, int k) {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        double apk = 0.0;
+
+        // only consider the real ranklist size.
+        int nK = Math.min(k, input.length);
+        int num_hits = 0;
+        for (int i = 0; i < nK; i++) {
+            if (groundTruth.containsLong(input[i])) {
+                num_hits += 1;
+                apk += (double) num_hits / (i + 1);
+            }
+        }
+        
+        // average by number of relevant document.
+        return apk / Math.min(nK, groundTruth.size());
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import thn.research.textutility.general.ExecutionService;
+
+/**
+ * Compute Expected Reciprocal Rank, Rank-Biased Precision, hit rate, catalog coverage and novelty at k
+ * in one walk over each rank list of int item ids in [0, catalogSize).
+ * Relevance is binary: for ERR, a relevant item satisfies the user with probability (2^1 - 1) / 2^1 = 0.5.
+ * Ref:
+ * 1. Chapelle et al., Expected Reciprocal Rank for Graded Relevance, CIKM 2009.
+ * 2. Moffat and Zobel, Rank-Biased Precision for Measurement of Retrieval Effectiveness, TOIS 2008.
+ * 3. Vargas and Castells, Rank and Relevance in Novelty and Diversity Metrics for Recommender Systems, RecSys 2011.
+ *
+ * The evaluator is immutable, so one instance can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class CatalogMetricEvaluator {
+
+    // Satisfaction probability of a relevant item in ERR with binary grade.
+    private static final double ERR_RELEVANT_PROBABILITY = 0.5;
+
+    private final int k;
+    private final double persistence;
+    private final int catalogSize;
+    // Self-information -log2(popularity) of each item.
+    private final double[] selfInformation;
+    // RBP weight (1 - p) * p^i of each position.
+    private final double[] rbpWeight;
+
+    /**
+     * @param k cutoff.
+     * @param persistence RBP user persistence p, e.g., 0.8.
+     * @param interactionCounts number of users who interacted with each item, indexed by item id. Its length is the catalog size.
+     * @param numUser number of users, for popularity = (count + 1) / (numUser + 1), smoothed to avoid log(0).
+     * @throws Exception
+     */
+    public CatalogMetricEvaluator(int k, double persistence, long[] interactionCounts, long numUser) throws Exception {
+        if (k <= 0) {
+            throw new Exception("Cutoff has to be positive.");
+        }
+        if ((persistence < 0) || (persistence >= 1)) {
+            throw new Exception("RBP persistence has to be in [0, 1).");
+        }
+        this.k = k;
+        this.persistence = persistence;
+        this.catalogSize = interactionCounts.length;
+
+        selfInformation = new double[catalogSize];
+        for (int item = 0; item < catalogSize; item++) {
+            double popularity = (double) (interactionCounts[item] + 1) / (numUser + 1);
+            selfInformation[item] = -Math.log(popularity) / Math.log(2);
+        }
+        rbpWeight = new double[k];
+        double weight = 1 - persistence;
+        for (int i = 0; i < k; i++) {
+            rbpWeight[i] = weight;
+            weight *= persistence;
+        }
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public double getPersistence() {
+        return persistence;
+    }
+
+    public int getCatalogSize() {
+        return catalogSize;
+    }
+
+    /**
+     * Create an empty result to accumulate into.
+     *
+     * @return
+     */
+    public CatalogMetricResult createResult() {
+        return new CatalogMetricResult(catalogSize);
+    }
+
+    /**
+     * Walk top k of one rank list once and add all metrics into result.
+     * Null or empty rank list is skipped, as in mean methods of metric classes.
+     *
+     * @param input item ids in [0, catalogSize).
+     * @param groundTruth
+     * @param result
+     * @throws Exception if an item id in top k is out of catalog.
+     */
+    public void evaluate(int[] input, IntRelevanceSet groundTruth, CatalogMetricResult result) throws Exception {
+        if ((input == null) || (input.length == 0)) {
+            return;
+        }
+        int nK = Math.min(k, input.length);
+        // Check ids before changing result.
+        for (int i = 0; i < nK; i++) {
+            if ((input[i] < 0) || (input[i] >= catalogSize)) {
+                throw new Exception("Item id " + input[i] + " at rank " + (i + 1) + " is out of catalog [0, " + catalogSize + ").");
+            }
+        }
+        result.numInput++;
+
+        boolean hasRelevance = (groundTruth != null) && (!groundTruth.isEmpty());
+        double err = 0.0;
+        // Probability that user is not satisfied before current position.
+        double notSatisfied = 1.0;
+        double rbp = 0.0;
+        boolean hit = false;
+        double novelty = 0.0;
+        long[] recommended = result.recommended;
+        for (int i = 0; i < nK; i++) {
+            int item = input[i];
+            recommended[item >>> 6] |= 1L << item;
+            novelty += selfInformation[item];
+            if (hasRelevance && groundTruth.containsInt(item)) {
+                err += notSatisfied * ERR_RELEVANT_PROBABILITY / (i + 1);
+                notSatisfied *= 1 - ERR_RELEVANT_PROBABILITY;
+                rbp += rbpWeight[i];
+                hit = true;
+            }
+        }
+
+        result.sumERR += err;
+        result.sumRBP += rbp;
+        result.sumHitRate += hit ? 1 : 0;
+        result.sumNovelty += novelty / nK;
+    }
+
+    /**
+     * Evaluate rank lists in parallel.
+     * Rank lists are cut into chunks of fixed size, and sums of each chunk are added in chunk order,
+     * so the result is the same for any pool.
+     * Recommended items are marked in one bit set per worker thread, not per chunk, then bit sets are OR-ed.
+     *
+     * @param input
+     * @param groundTruth ground truth of each rank list.
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception if an item id in top k is out of catalog.
+     */
+    public CatalogMetricResult evaluateMean(List<int[]> input, List<IntRelevanceSet> groundTruth, ForkJoinPool pool) throws Exception {
+        CatalogMetricResult result = createResult();
+        if ((input == null) || (groundTruth == null) || (input.isEmpty())) {
+            return result;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        int numChunk = (input.size() + ParallelEvaluation.CHUNK_SIZE - 1) / ParallelEvaluation.CHUNK_SIZE;
+        CatalogMetricResult[] chunkResults = new CatalogMetricResult[numChunk];
+        ConcurrentHashMap<Thread, long[]> workerRecommended = new ConcurrentHashMap<>();
+        try {
+            // Parallel stream started inside a pool task runs in that pool.
+            pool.submit(() -> IntStream.range(0, numChunk).parallel().forEach(c -> {
+                long[] recommended = workerRecommended.computeIfAbsent(Thread.currentThread(), t -> new long[result.recommended.length]);
+                chunkResults[c] = evaluateChunk(input, groundTruth, c, recommended);
+            })).get();
+        } catch (ExecutionException e) {
+            // Fork-join wraps the exception again each time it crosses threads, so search the cause chain.
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ChunkException) {
+                    throw (Exception) cause.getCause();
+                }
+            }
+            throw e;
+        }
+
+        for (CatalogMetricResult chunkResult : chunkResults) {
+            result.addSums(chunkResult);
+        }
+        for (long[] recommended : workerRecommended.values()) {
+            result.addRecommended(recommended);
+        }
+        return result;
+    }
+
+    /**
+     * Sums of one chunk, marking recommended items in the bit set of the current worker.
+     */
+    private CatalogMetricResult evaluateChunk(List<int[]> input, List<IntRelevanceSet> groundTruth, int chunk, long[] recommended) {
+        CatalogMetricResult chunkResult = new CatalogMetricResult(catalogSize, recommended);
+        int from = chunk * ParallelEvaluation.CHUNK_SIZE;
+        int to = Math.min(from + ParallelEvaluation.CHUNK_SIZE, input.size());
+        try {
+            for (int i = from; i < to; i++) {
+                evaluate(input.get(i), groundTruth.get(i), chunkResult);
+            }
+        } catch (Exception e) {
+            throw new ChunkException(e);
+        }
+        return chunkResult;
+    }
+
+    /**
+     * Carry checked exception of a chunk out of parallel stream.
+     */
+    private static class ChunkException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ChunkException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+/**
+ * Accumulated ERR, RBP, hit rate and novelty sums, and the set of recommended items for catalog coverage.
+ * Filled by CatalogMetricEvaluator, one rank list at a time.
+ * All counters are primitive, and results of different threads can be merged.
+ *
+ * Not thread-safe: use one result per thread and merge them.
+ *
+ * @author THNghiep
+ */
+public class CatalogMetricResult {
+
+    private final int catalogSize;
+
+    double sumERR;
+    double sumRBP;
+    double sumHitRate;
+    double sumNovelty;
+    int numInput;
+    // Bit set of recommended item ids.
+    final long[] recommended;
+
+    CatalogMetricResult(int catalogSize) {
+        this(catalogSize, new long[(catalogSize + 63) >>> 6]);
+    }
+
+    /**
+     * Result marking recommended items in a given bit set, e.g., shared by the chunks of one worker thread.
+     */
+    CatalogMetricResult(int catalogSize, long[] recommended) {
+        this.catalogSize = catalogSize;
+        this.recommended = recommended;
+    }
+
+    /**
+     * Add other result into this result.
+     *
+     * @param other result of the same catalog.
+     * @throws Exception
+     */
+    public void merge(CatalogMetricResult other) throws Exception {
+        if (catalogSize != other.catalogSize) {
+            throw new Exception("Cannot merge results of different catalogs.");
+        }
+        addSums(other);
+        addRecommended(other.recommended);
+    }
+
+    void addSums(CatalogMetricResult other) {
+        sumERR += other.sumERR;
+        sumRBP += other.sumRBP;
+        sumHitRate += other.sumHitRate;
+        sumNovelty += other.sumNovelty;
+        numInput += other.numInput;
+    }
+
+    void addRecommended(long[] otherRecommended) {
+        for (int i = 0; i < recommended.length; i++) {
+            recommended[i] |= otherRecommended[i];
+        }
+    }
+
+    /**
+     * Number of evaluated (non-empty) rank lists.
+     *
+     * @return
+     */
+    public int getNumInput() {
+        return numInput;
+    }
+
+    public double getMeanERR() {
+        return mean(sumERR);
+    }
+
+    public double getMeanRBP() {
+        return mean(sumRBP);
+    }
+
+    /**
+     * Fraction of rank lists with at least one relevant item in top k.
+     *
+     * @return
+     */
+    public double getHitRate() {
+        return mean(sumHitRate);
+    }
+
+    /**
+     * Mean over rank lists of mean self-information -log2(popularity) of top k items.
+     *
+     * @return
+     */
+    public double getMeanNovelty() {
+        return mean(sumNovelty);
+    }
+
+    /**
+     * Number of distinct items recommended in top k of any rank list.
+     *
+     * @return
+     */
+    public int getNumRecommendedItem() {
+        int count = 0;
+        for (long word : recommended) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Catalog coverage: fraction of catalog items recommended in top k of any rank list.
+     *
+     * @return
+     */
+    public double getCoverage() {
+        if (catalogSize == 0) {
+            return 0;
+        }
+        return (double) getNumRecommendedItem() / catalogSize;
+    }
+
+    private double mean(double sum) {
+        if (numInput == 0) {
+            return 0;
+        }
+        return sum / numInput;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+/**
+ * Cached NDCG position discounts log(2) / log(i + 2) and their prefix sums, i.e., binary IDCG at each k.
+ * The table is grown lazily when a larger position is needed.
+ * Values are computed in the same order as the plain formula, so cached results are identical to computed ones.
+ *
+ * Thread-safe: growing is synchronized and a grown table is published as a whole through a volatile field,
+ * so readers never lock.
+ *
+ * @author THNghiep
+ */
+class DiscountTable {
+
+    // Positions beyond this are computed directly instead of being cached.
+    static final int MAX_CACHED_SIZE = 1 << 20;
+
+    private static volatile Table table = new Table(new double[0], new double[]{0.0});
+
+    // Prevent instantiation.
+    private DiscountTable() {
+    }
+
+    /**
+     * Discounts of the first n positions.
+     *
+     * @param n
+     * @return array of length at least n. Do not modify.
+     */
+    static double[] discounts(int n) {
+        Table current = table;
+        if (current.discount.length >= n) {
+            return current.discount;
+        }
+        if (n > MAX_CACHED_SIZE) {
+            double[] discount = new double[n];
+            for (int i = 0; i < n; i++) {
+                discount[i] = Math.log(2) / Math.log(i + 2);
+            }
+            return discount;
+        }
+        return grow(n).discount;
+    }
+
+    /**
+     * Binary IDCG at k, i.e., sum of discounts of the first k positions.
+     *
+     * @param k
+     * @return
+     */
+    static double idcg(int k) {
+        if (k <= 0) {
+            return 0.0;
+        }
+        Table current = table;
+        if (current.discount.length < k) {
+            if (k > MAX_CACHED_SIZE) {
+                double idcg = 0.0;
+                for (int i = 0; i < k; i++) {
+                    idcg += Math.log(2) / Math.log(i + 2);
+                }
+                return idcg;
+            }
+            current = grow(k);
+        }
+        return current.prefix[k];
+    }
+
+    private static synchronized Table grow(int n) {
+        Table current = table;
+        int oldSize = current.discount.length;
+        if (oldSize >= n) {
+            // Grown by another thread meanwhile.
+            return current;
+        }
+
+        // Grow geometrically to amortize copying.
+        int newSize = (int) Math.min(MAX_CACHED_SIZE, Math.max(n, Math.max(64, 2L * oldSize)));
+        double[] discount = new double[newSize];
+        double[] prefix = new double[newSize + 1];
+        System.arraycopy(current.discount, 0, discount, 0, oldSize);
+        System.arraycopy(current.prefix, 0, prefix, 0, oldSize + 1);
+        for (int i = oldSize; i < newSize; i++) {
+            discount[i] = Math.log(2) / Math.log(i + 2);
+            prefix[i + 1] = prefix[i] + discount[i];
+        }
+
+        table = new Table(discount, prefix);
+        return table;
+    }
+
+    /**
+     * Immutable snapshot of the table.
+     */
+    private static class Table {
+
+        final double[] discount;
+        // prefix[k] = discount[0] + ... + discount[k - 1].
+        final double[] prefix;
+
+        Table(double[] discount, double[] prefix) {
+            this.discount = discount;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -5,6 +5,7 @@
 package thn.research.textutility.evaluation;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Ref: https://en.wikipedia.org/wiki/F1_score
@@ -32,18 +33,8 @@ public class FMeasure {
             return 0.0;
         }
 
-        double sumF = 0;
-        int numInput = 0;
-        for (int i = 0; i < input.size(); i++) {
-            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
-                numInput++;
-                sumF += computeFMeasureAtK(input.get(i), groundTruth, beta, k);
-            }
-        }
-        if (numInput == 0) {
-            return 0;
-        }
-        return sumF / numInput;
+        // Index the shared ground truth once for all rank lists.
+        return new SharedGroundTruthEvaluator(groundTruth).computeMeanFMeasureAtK(input, beta, k);
     }
 
     /**
@@ -63,10 +54,11 @@ public class FMeasure {
 
         double sumF = 0;
         int numInput = 0;
+        HitSet hits = new HitSet();
         for (int i = 0; i < input.size(); i++) {
             if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
                 numInput++;
-                sumF += computeFMeasureAtK(input.get(i), groundTruth.get(i), beta, k);
+                sumF += computeFMeasureAtK(input.get(i), groundTruth.get(i), beta, k, hits);
             }
         }
         if (numInput == 0) {
@@ -75,6 +67,53 @@ public class FMeasure {
         return sumF / numInput;
     }
 
+    /**
+     * Compute MeanFMeasure with beta parameter in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param beta
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanFMeasureAtKParallel(List<List> input, List<List> groundTruth, double beta, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // One scratch hit set per chunk.
+        return ParallelEvaluation.computeMeanByChunk(input, () -> {
+            HitSet hits = new HitSet();
+            return i -> computeFMeasureAtK(input.get(i), groundTruth.get(i), beta, k, hits);
+        }, pool);
+    }
+
+    /**
+     * Compute MeanFMeasure with beta parameter with shared ground truth in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param beta
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanFMeasureAtKSharedGroundTruthParallel(List<List> input, List groundTruth, double beta, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // Index the shared ground truth once, then share it read-only between threads.
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        return ParallelEvaluation.computeMeanByChunk(input, () -> {
+            HitSet hits = new HitSet();
+            return i -> computeFMeasureAtK(input.get(i), sharedGroundTruth, beta, k, hits);
+        }, pool);
+    }
+
     /**
      * This method computes F1 score.
      *
@@ -86,6 +125,17 @@ public class FMeasure {
         return computeFMeasure(input, groundTruth, 1);
     }
 
+    /**
+     * This method computes F1 score with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @return F1
+     */
+    public static double computeF1Score(List input, RelevanceSet groundTruth) throws Exception {
+        return computeFMeasure(input, groundTruth, 1);
+    }
+
     /**
      * This method computes F-measure.
      *
@@ -98,15 +148,28 @@ public class FMeasure {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
             return 0.0;
         }
+
+        // Index ground truth once for both precision and recall.
+        return computeFMeasure(input, RelevanceSet.of(groundTruth), beta);
+    }
+
+    /**
+     * This method computes F-measure with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @param beta
+     * @return F measure
+     */
+    public static double computeFMeasure(List input, RelevanceSet groundTruth, double beta) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
         
         double precision = Precision.computePrecision(input, groundTruth);
         double recall = Recall.computeRecall(input, groundTruth);
-        double f = ((1 + beta) * precision * recall) / ((beta * beta * precision) + recall);
-        if (Double.isNaN(f) || (Double.isInfinite(f))) {
-            f = 0.0;
-        }
 
-        return f;
+        return computeFMeasure(precision, recall, beta);
     }
     
     /**
@@ -121,6 +184,18 @@ public class FMeasure {
         return computeFMeasureAtK(input, groundTruth, 1, k);
     }
 
+    /**
+     * This method computes F1 score at K with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return F1
+     */
+    public static double computeF1ScoreAtK(List input, RelevanceSet groundTruth, int k) throws Exception {
+        return computeFMeasureAtK(input, groundTruth, 1, k);
+    }
+
     /**
      * This method computes F-measure at K.
      *
@@ -134,9 +209,62 @@ public class FMeasure {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
             return 0.0;
         }
+
+        return computeFMeasureAtK(input, groundTruth, beta, k, new HitSet());
+    }
+
+    /**
+     * Compute F-measure at K, with caller-owned scratch hit set.
+     */
+    static double computeFMeasureAtK(List input, List groundTruth, double beta, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+
+        // Index ground truth once for both precision and recall.
+        return computeFMeasureAtK(input, RelevanceSet.of(groundTruth), beta, k, hits);
+    }
+
+    /**
+     * This method computes F-measure at K with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @param beta
+     * @param k
+     * @return F measure
+     */
+    public static double computeFMeasureAtK(List input, RelevanceSet groundTruth, double beta, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+
+        return computeFMeasureAtK(input, groundTruth, beta, k, new HitSet());
+    }
+
+    /**
+     * Compute F-measure at K, with caller-owned scratch hit set.
+     */
+    static double computeFMeasureAtK(List input, RelevanceSet groundTruth, double beta, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
         
         double precision = Precision.computePrecisionAtK(input, groundTruth, k);
-        double recall = Recall.computeRecallAtK(input, groundTruth, k);
+        double recall = Recall.computeRecallAtK(input, groundTruth, k, hits);
+
+        return computeFMeasure(precision, recall, beta);
+    }
+
+    /**
+     * This method combines precision and recall into F-measure.
+     *
+     * @param precision
+     * @param recall
+     * @param beta
+     * @return F measure, 0 when undefined.
+     */
+    public static double computeFMeasure(double precision, double recall, double beta) {
         double f = ((1 + beta) * precision * recall) / ((beta * beta * precision) + recall);
         if (Double.isNaN(f) || (Double.isInfinite(f))) {
             f = 0.0;
@@ -144,4 +272,66 @@ public class FMeasure {
 
         return f;
     }
+
+    /**
+     * This method computes F-measure at K on primitive item ids, without boxing.
+     *
+     * @param input
+     * @param groundTruth
+     * @param beta
+     * @param k
+     * @return F measure
+     */
+    public static double computeFMeasureAtK(int[] input, IntRelevanceSet groundTruth, double beta, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+
+        return computeFMeasureAtK(input, groundTruth, beta, k, new HitSet());
+    }
+
+    /**
+     * Compute F-measure at K, with caller-owned scratch hit set.
+     */
+    static double computeFMeasureAtK(int[] input, IntRelevanceSet groundTruth, double beta, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+        
+        double precision = Precision.computePrecisionAtK(input, groundTruth, k);
+        double recall = Recall.computeRecallAtK(input, groundTruth, k, hits);
+
+        return computeFMeasure(precision, recall, beta);
+    }
+
+    /**
+     * This method computes F-measure at K on primitive item ids, without boxing.
+     *
+     * @param input
+     * @param groundTruth
+     * @param beta
+     * @param k
+     * @return F measure
+     */
+    public static double computeFMeasureAtK(long[] input, LongRelevanceSet groundTruth, double beta, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+
+        return computeFMeasureAtK(input, groundTruth, beta, k, new HitSet());
+    }
+
+    /**
+     * Compute F-measure at K, with caller-owned scratch hit set.
+     */
+    static double computeFMeasureAtK(long[] input, LongRelevanceSet groundTruth, double beta, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (beta < 0)) {
+            return 0.0;
+        }
+        
+        double precision = Precision.computePrecisionAtK(input, groundTruth, k);
+        double recall = Recall.computeRecallAtK(input, groundTruth, k, hits);
+
+        return computeFMeasure(precision, recall, beta);
+    }
 }
@@ -0,0 +1,187 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Graded relevance judgment of one query, e.g., citation counts or click levels.
+ * Backed by an open addressing table of item keys and primitive float grades, without boxed values.
+ * Items with grade > 0 are relevant, so it is also a binary RelevanceSet for the other metrics.
+ *
+ * Build it with a Builder or of(). It is immutable, with the ideal grades computed on build,
+ * so it can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class GradedRelevanceSet extends RelevanceSet {
+
+    private final Object[] keys;
+    private final float[] grades;
+    private final int numRelevant;
+    // Grades of relevant items sorted descending, i.e., the ideal rank list.
+    private final float[] idealGrades;
+
+    private GradedRelevanceSet(Object[] keys, float[] grades, int numRelevant) {
+        this.keys = keys;
+        this.grades = grades;
+        this.numRelevant = numRelevant;
+
+        float[] ideal = new float[numRelevant];
+        int n = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if ((keys[slot] != null) && (grades[slot] > 0)) {
+                ideal[n++] = grades[slot];
+            }
+        }
+        Arrays.sort(ideal);
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            float temp = ideal[i];
+            ideal[i] = ideal[j];
+            ideal[j] = temp;
+        }
+        this.idealGrades = ideal;
+    }
+
+    /**
+     * Build from item to grade map.
+     *
+     * @param judgments
+     * @return null if judgments is null.
+     */
+    public static GradedRelevanceSet of(Map<?, ? extends Number> judgments) {
+        if (judgments == null) {
+            return null;
+        }
+        Builder builder = new Builder(judgments.size());
+        for (Map.Entry<?, ? extends Number> entry : judgments.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().floatValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Grade of an item, 0 if it is not judged.
+     *
+     * @param item
+     * @return
+     */
+    public float getGrade(Object item) {
+        if (item == null) {
+            return 0;
+        }
+        int slot = findSlot(keys, item);
+        return (keys[slot] == null) ? 0 : grades[slot];
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return getGrade(item) > 0;
+    }
+
+    /**
+     * Number of relevant items, i.e., with grade > 0.
+     *
+     * @return
+     */
+    @Override
+    public int size() {
+        return numRelevant;
+    }
+
+    /**
+     * Grades of relevant items sorted descending.
+     *
+     * @return Do not modify.
+     */
+    float[] getIdealGrades() {
+        return idealGrades;
+    }
+
+    /**
+     * Collect grades of one query, then build the immutable set.
+     * Not thread-safe.
+     */
+    public static class Builder {
+
+        private Object[] keys;
+        private float[] grades;
+        private int numKey;
+        private int numRelevant;
+
+        public Builder() {
+            this(8);
+        }
+
+        /**
+         * @param expectedSize number of judged items.
+         */
+        public Builder(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new Object[capacity];
+            grades = new float[capacity];
+        }
+
+        /**
+         * Set grade of an item. Grade <= 0 means judged irrelevant.
+         *
+         * @param item not null.
+         * @param grade
+         * @return this builder.
+         */
+        public Builder put(Object item, float grade) {
+            if ((numKey + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int slot = findSlot(keys, item);
+            if (keys[slot] == null) {
+                keys[slot] = item;
+                numKey++;
+            } else if (grades[slot] > 0) {
+                numRelevant--;
+            }
+            grades[slot] = grade;
+            if (grade > 0) {
+                numRelevant++;
+            }
+            return this;
+        }
+
+        /**
+         * Build set of the grades put so far. The builder can still be used after.
+         *
+         * @return
+         */
+        public GradedRelevanceSet build() {
+            return new GradedRelevanceSet(keys.clone(), grades.clone(), numRelevant);
+        }
+
+        private void rehash(int capacity) {
+            Object[] newKeys = new Object[capacity];
+            float[] newGrades = new float[capacity];
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    int newSlot = findSlot(newKeys, keys[slot]);
+                    newKeys[newSlot] = keys[slot];
+                    newGrades[newSlot] = grades[slot];
+                }
+            }
+            keys = newKeys;
+            grades = newGrades;
+        }
+    }
+
+    private static int findSlot(Object[] keys, Object item) {
+        int mask = keys.length - 1;
+        int h = item.hashCode() * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while ((keys[slot] != null) && (!keys[slot].equals(item))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Relevant items already retrieved in one rank list, so that a duplicated hit is counted once.
+ * Open addressing set sized by the number of possible distinct hits, i.e., min(k, ground truth size),
+ * so each check is O(1) and a rank list is judged in O(k).
+ *
+ * One set can be reused as scratch for many rank lists: clear() is O(1), a slot is used only
+ * if its stamp is the current generation, and tables are allocated only when they have to grow.
+ * Not thread-safe: use one set per thread or per chunk.
+ *
+ * @author THNghiep
+ */
+class HitSet {
+
+    private int mask;
+    // Slot is used in the current rank list iff its stamp equals generation.
+    private int generation;
+    private int[] stamps;
+    private Object[] items;
+    private boolean hasNull;
+    private long[] ids;
+    // Item 0 is kept in a separate flag, as ids of int and long sets.
+    private boolean hasZero;
+
+    /**
+     * Empty scratch set, to be cleared with the size of each rank list.
+     */
+    HitSet() {
+        clear(0);
+    }
+
+    /**
+     * @param maxHit max number of distinct items added. Load factor stays at most 0.5.
+     */
+    HitSet(int maxHit) {
+        clear(maxHit);
+    }
+
+    /**
+     * Empty the set for a new rank list.
+     *
+     * @param maxHit max number of distinct items added until the next clear.
+     */
+    void clear(int maxHit) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxHit) * 2 - 1) << 1;
+        mask = capacity - 1;
+        if ((stamps != null) && (stamps.length < capacity)) {
+            // Grow on next add.
+            stamps = null;
+            items = null;
+            ids = null;
+        }
+        hasNull = false;
+        hasZero = false;
+        generation++;
+        if (generation == 0) {
+            // Wrapped around: old stamps could look current.
+            if (stamps != null) {
+                Arrays.fill(stamps, 0);
+            }
+            generation = 1;
+        }
+    }
+
+    /**
+     * Add item.
+     *
+     * @param item
+     * @return true if item was not in the set, i.e., this is its first occurrence.
+     */
+    boolean add(Object item) {
+        if (item == null) {
+            boolean added = !hasNull;
+            hasNull = true;
+            return added;
+        }
+        if (items == null) {
+            items = new Object[allocateStamps()];
+        }
+        int slot = spread(item.hashCode()) & mask;
+        while (stamps[slot] == generation) {
+            if (items[slot].equals(item)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        stamps[slot] = generation;
+        items[slot] = item;
+        return true;
+    }
+
+    /**
+     * Add primitive item id, without boxing.
+     *
+     * @param item
+     * @return true if item was not in the set, i.e., this is its first occurrence.
+     */
+    boolean addLong(long item) {
+        if (item == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        if (ids == null) {
+            ids = new long[allocateStamps()];
+        }
+        long h = item * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (stamps[slot] == generation) {
+            if (ids[slot] == item) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        stamps[slot] = generation;
+        ids[slot] = item;
+        return true;
+    }
+
+    /**
+     * @return table length.
+     */
+    private int allocateStamps() {
+        if (stamps == null) {
+            stamps = new int[mask + 1];
+        }
+        return stamps.length;
+    }
+
+    private static int spread(int h) {
+        // Fibonacci hashing, spread sequential hash codes over the table.
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
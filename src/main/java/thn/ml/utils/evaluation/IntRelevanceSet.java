@@ -0,0 +1,93 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+/**
+ * Relevance set of int item ids, backed by an open addressing primitive hash set.
+ * Used with int[] rank lists so that evaluation does not box any item.
+ * As a RelevanceSet, it also judges List rank lists of Integer items.
+ *
+ * @author THNghiep
+ */
+public class IntRelevanceSet extends RelevanceSet {
+
+    // 0 marks empty slot, so item 0 is kept in a separate flag.
+    private final int[] slots;
+    private final int mask;
+    private final boolean hasZero;
+    private final int size;
+
+    /**
+     * Index ground truth item ids, in any order. Duplicated ids are counted once.
+     *
+     * @param groundTruth
+     */
+    public IntRelevanceSet(int[] groundTruth) {
+        // Load factor at most 0.5 to keep probe sequences short.
+        int capacity = Integer.highestOneBit(Math.max(2, groundTruth.length) * 2 - 1) << 1;
+        slots = new int[capacity];
+        mask = capacity - 1;
+
+        boolean zero = false;
+        int count = 0;
+        for (int item : groundTruth) {
+            if (item == 0) {
+                if (!zero) {
+                    zero = true;
+                    count++;
+                }
+                continue;
+            }
+            int slot = hash(item) & mask;
+            while ((slots[slot] != 0) && (slots[slot] != item)) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                slots[slot] = item;
+                count++;
+            }
+        }
+        hasZero = zero;
+        size = count;
+    }
+
+    /**
+     * Check whether an item id is relevant, without boxing.
+     *
+     * @param item
+     * @return
+     */
+    public boolean containsInt(int item) {
+        if (item == 0) {
+            return hasZero;
+        }
+        int slot = hash(item) & mask;
+        int current;
+        while ((current = slots[slot]) != 0) {
+            if (current == item) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return (item instanceof Integer) && containsInt((Integer) item);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static int hash(int item) {
+        // Fibonacci hashing, spread sequential ids over the table.
+        int h = item * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
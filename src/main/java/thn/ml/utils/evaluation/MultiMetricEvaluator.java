@@ -0,0 +1,182 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compute precision, recall, F-measure, AP and NDCG at several cutoffs, and reciprocal rank,
+ * in one walk over each rank list.
+ * Each value is the same as computed by the corresponding metric class.
+ *
+ * The evaluator is immutable, so one instance can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class MultiMetricEvaluator {
+
+    // Sorted ascending and distinct.
+    private final int[] cutoffs;
+    private final double beta;
+    private final double[] idcg;
+
+    /**
+     * @param cutoffs e.g., {5, 10, 20, 50, 100}.
+     * @param beta for F-measure, 1 means F1 score.
+     * @throws Exception
+     */
+    public MultiMetricEvaluator(int[] cutoffs, double beta) throws Exception {
+        if ((cutoffs == null) || (cutoffs.length == 0)) {
+            throw new Exception("At least one cutoff is required.");
+        }
+        int[] sorted = Arrays.stream(cutoffs).sorted().distinct().toArray();
+        if (sorted[0] <= 0) {
+            throw new Exception("Cutoffs have to be positive.");
+        }
+        this.cutoffs = sorted;
+        this.beta = beta;
+        this.idcg = new double[sorted.length];
+        for (int j = 0; j < sorted.length; j++) {
+            idcg[j] = NDCG.computeIDCG(sorted[j]);
+        }
+    }
+
+    /**
+     * Largest cutoff, i.e., rank list length needed for all metrics except reciprocal rank.
+     *
+     * @return
+     */
+    public int getMaxCutoff() {
+        return cutoffs[cutoffs.length - 1];
+    }
+
+    /**
+     * Create an empty result to accumulate into.
+     *
+     * @return
+     */
+    public MultiMetricResult createResult() {
+        return new MultiMetricResult(cutoffs);
+    }
+
+    /**
+     * Evaluate rank lists against their own ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @return
+     * @throws Exception
+     */
+    public MultiMetricResult evaluateMean(List<List> input, List<List> groundTruth) throws Exception {
+        MultiMetricResult result = createResult();
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return result;
+        }
+
+        for (int i = 0; i < input.size(); i++) {
+            evaluate(input.get(i), RelevanceSet.of(groundTruth.get(i)), result);
+        }
+        return result;
+    }
+
+    /**
+     * Evaluate rank lists against a shared ground truth, indexed once.
+     *
+     * @param input
+     * @param groundTruth
+     * @return
+     * @throws Exception
+     */
+    public MultiMetricResult evaluateMeanSharedGroundTruth(List<List> input, List groundTruth) throws Exception {
+        MultiMetricResult result = createResult();
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return result;
+        }
+
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        for (int i = 0; i < input.size(); i++) {
+            evaluate(input.get(i), sharedGroundTruth, result);
+        }
+        return result;
+    }
+
+    /**
+     * Walk one rank list once and add all metrics at all cutoffs into result.
+     * Null or empty rank list is skipped, as in mean methods of metric classes.
+     *
+     * @param input
+     * @param groundTruth
+     * @param result
+     * @throws Exception
+     */
+    public void evaluate(List input, RelevanceSet groundTruth, MultiMetricResult result) throws Exception {
+        if ((input == null) || (input.isEmpty())) {
+            return;
+        }
+        result.numInput++;
+        if ((groundTruth == null) || (groundTruth.isEmpty())) {
+            // All metrics are 0.
+            return;
+        }
+
+        int size = input.size();
+        int numRelevant = groundTruth.size();
+        int maxK = cutoffs[cutoffs.length - 1];
+        double[] discount = DiscountTable.discounts(Math.min(maxK, size));
+
+        int numHits = 0;
+        int numDistinctHits = 0;
+        HitSet hits = new HitSet(Math.min(Math.min(maxK, size), numRelevant));
+        double ap = 0.0;
+        double dcg = 0.0;
+        double rr = 0.0;
+        int j = 0;
+        int i = 0;
+        // Walk to max cutoff, and further only while reciprocal rank is still unknown.
+        for (; (i < size) && ((i < maxK) || (rr == 0.0)); i++) {
+            Object item = input.get(i);
+            if (groundTruth.contains(item)) {
+                if (rr == 0.0) {
+                    rr = (double) 1 / (i + 1);
+                }
+                if (i < maxK) {
+                    numHits++;
+                    ap += (double) numHits / (i + 1);
+                    dcg += discount[i];
+                    if (hits.add(item)) {
+                        numDistinctHits++;
+                    }
+                }
+            }
+            // Record cutoffs reached at this position.
+            while ((j < cutoffs.length) && (cutoffs[j] == i + 1)) {
+                record(result, j, i + 1, numHits, numDistinctHits, ap, dcg, numRelevant);
+                j++;
+            }
+        }
+        // Rank list is shorter than remaining cutoffs: items out of rank list gain 0.
+        while (j < cutoffs.length) {
+            record(result, j, size, numHits, numDistinctHits, ap, dcg, numRelevant);
+            j++;
+        }
+        result.sumRR += rr;
+    }
+
+    private void record(MultiMetricResult result, int j, int nK, int numHits, int numDistinctHits,
+            double ap, double dcg, int numRelevant) {
+        int k = cutoffs[j];
+        double precision = (double) numHits / k;
+        double recall = (double) numDistinctHits / numRelevant;
+        result.sumPrecision[j] += precision;
+        result.sumRecall[j] += recall;
+        if (beta >= 0) {
+            result.sumFMeasure[j] += FMeasure.computeFMeasure(precision, recall, beta);
+        }
+        result.sumAP[j] += ap / Math.min(nK, numRelevant);
+        result.sumNDCG[j] += dcg / idcg[j];
+    }
+}
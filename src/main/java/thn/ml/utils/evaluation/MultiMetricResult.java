@@ -0,0 +1,115 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Accumulated sums of precision, recall, F-measure, AP, NDCG at several cutoffs and reciprocal rank.
+ * Filled by MultiMetricEvaluator, one rank list at a time.
+ * Results of different batches or threads can be merged, then read as means.
+ *
+ * Not thread-safe: use one result per thread and merge them.
+ *
+ * @author THNghiep
+ */
+public class MultiMetricResult {
+
+    private final int[] cutoffs;
+
+    final double[] sumPrecision;
+    final double[] sumRecall;
+    final double[] sumFMeasure;
+    final double[] sumAP;
+    final double[] sumNDCG;
+    double sumRR;
+    int numInput;
+
+    /**
+     * @param cutoffs sorted ascending and distinct, as in MultiMetricEvaluator.
+     */
+    MultiMetricResult(int[] cutoffs) {
+        this.cutoffs = cutoffs;
+        sumPrecision = new double[cutoffs.length];
+        sumRecall = new double[cutoffs.length];
+        sumFMeasure = new double[cutoffs.length];
+        sumAP = new double[cutoffs.length];
+        sumNDCG = new double[cutoffs.length];
+    }
+
+    /**
+     * Add sums of other result into this result.
+     *
+     * @param other result with the same cutoffs.
+     * @throws Exception
+     */
+    public void merge(MultiMetricResult other) throws Exception {
+        if (!Arrays.equals(cutoffs, other.cutoffs)) {
+            throw new Exception("Cannot merge results with different cutoffs.");
+        }
+        for (int j = 0; j < cutoffs.length; j++) {
+            sumPrecision[j] += other.sumPrecision[j];
+            sumRecall[j] += other.sumRecall[j];
+            sumFMeasure[j] += other.sumFMeasure[j];
+            sumAP[j] += other.sumAP[j];
+            sumNDCG[j] += other.sumNDCG[j];
+        }
+        sumRR += other.sumRR;
+        numInput += other.numInput;
+    }
+
+    public int[] getCutoffs() {
+        return cutoffs.clone();
+    }
+
+    /**
+     * Number of evaluated (non-empty) rank lists.
+     *
+     * @return
+     */
+    public int getNumInput() {
+        return numInput;
+    }
+
+    public double getMeanPrecisionAtK(int k) throws Exception {
+        return mean(sumPrecision[indexOf(k)]);
+    }
+
+    public double getMeanRecallAtK(int k) throws Exception {
+        return mean(sumRecall[indexOf(k)]);
+    }
+
+    public double getMeanFMeasureAtK(int k) throws Exception {
+        return mean(sumFMeasure[indexOf(k)]);
+    }
+
+    public double getMAPAtK(int k) throws Exception {
+        return mean(sumAP[indexOf(k)]);
+    }
+
+    public double getMeanNDCGAtK(int k) throws Exception {
+        return mean(sumNDCG[indexOf(k)]);
+    }
+
+    public double getMRR() {
+        return mean(sumRR);
+    }
+
+    private double mean(double sum) {
+        if (numInput == 0) {
+            return 0;
+        }
+        return sum / numInput;
+    }
+
+    private int indexOf(int k) throws Exception {
+        int j = Arrays.binarySearch(cutoffs, k);
+        if (j < 0) {
+            throw new Exception("Cutoff " + k + " was not evaluated.");
+        }
+        return j;
+    }
+}
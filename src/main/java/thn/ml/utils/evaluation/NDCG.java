@@ -5,6 +5,7 @@
 package thn.research.textutility.evaluation;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class content methods for computing metric related to NDCG.
@@ -35,12 +36,30 @@ public class NDCG {
             return 0.0;
         }
 
+        // Index the shared ground truth once for all rank lists.
+        return new SharedGroundTruthEvaluator(groundTruth).computeMeanNDCGAtK(input, k);
+    }
+
+    /**
+     * Compute mean NDCG at K.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanNDCGAtK(List<List> input, List<List> groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
         double sumNDCG = 0;
         int numInput = 0;
         for (int i = 0; i < input.size(); i++) {
             if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
                 numInput++;
-                sumNDCG += computeNDCG(input.get(i), groundTruth, k);
+                sumNDCG += computeNDCG(input.get(i), groundTruth.get(i), k);
             }
         }
         if (numInput == 0) {
@@ -50,7 +69,29 @@ public class NDCG {
     }
 
     /**
-     * Compute mean NDCG at K.
+     * Compute NDCG at K of each query, e.g., for significance tests.
+     * Null or empty rank list scores 0, so score vectors of different rankers stay aligned by query.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return score of each rank list in input.
+     * @throws Exception 
+     */
+    public static double[] computeNDCGPerQuery(List<List> input, List<List> groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null)) {
+            return new double[0];
+        }
+
+        double[] scores = new double[input.size()];
+        for (int i = 0; i < input.size(); i++) {
+            scores[i] = computeNDCG(input.get(i), groundTruth.get(i), k);
+        }
+        return scores;
+    }
+
+    /**
+     * Compute mean NDCG at K with IDCG bounded by the real ground truth size of each query.
      * 
      * @param input
      * @param groundTruth
@@ -58,7 +99,7 @@ public class NDCG {
      * @return
      * @throws Exception 
      */
-    public static double computeMeanNDCGAtK(List<List> input, List<List> groundTruth, int k) throws Exception {
+    public static double computeMeanBoundedNDCGAtK(List<List> input, List<List> groundTruth, int k) throws Exception {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
             return 0.0;
         }
@@ -68,7 +109,7 @@ public class NDCG {
         for (int i = 0; i < input.size(); i++) {
             if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
                 numInput++;
-                sumNDCG += computeNDCG(input.get(i), groundTruth.get(i), k);
+                sumNDCG += computeBoundedNDCG(input.get(i), groundTruth.get(i), k);
             }
         }
         if (numInput == 0) {
@@ -77,6 +118,44 @@ public class NDCG {
         return sumNDCG / numInput;
     }
 
+    /**
+     * Compute mean NDCG at K in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanNDCGAtKParallel(List<List> input, List<List> groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        return ParallelEvaluation.computeMean(input, i -> computeNDCG(input.get(i), groundTruth.get(i), k), pool);
+    }
+
+    /**
+     * Compute mean NDCG at K with shared ground truth in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanNDCGAtKSharedGroundTruthParallel(List<List> input, List groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // Index the shared ground truth once, then share it read-only between threads.
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        return ParallelEvaluation.computeMean(input, i -> computeNDCG(input.get(i), sharedGroundTruth, k), pool);
+    }
+
     /**
      * This method compute the basic NDCG metric.
      * Relevance score: binary, means relevant item: 1, irrelevant item: 0.
@@ -95,6 +174,22 @@ public class NDCG {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
             return 0.0;
         }
+
+        return computeNDCG(input, RelevanceSet.of(groundTruth), k);
+    }
+
+    /**
+     * This method compute the basic NDCG metric with indexed ground truth.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return ndcg
+     */
+    public static double computeNDCG(List input, RelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
         
         double ndcg = 0.0;
         
@@ -103,6 +198,39 @@ public class NDCG {
         
         return ndcg;
     }
+
+    /**
+     * This method compute NDCG with IDCG bounded by the real ground truth size.
+     * Unlike computeNDCG, a query with fewer than k relevant items can still get NDCG 1.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return ndcg
+     */
+    public static double computeBoundedNDCG(List input, List groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeBoundedNDCG(input, RelevanceSet.of(groundTruth), k);
+    }
+
+    /**
+     * This method compute NDCG with IDCG bounded by the real ground truth size, with indexed ground truth.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return ndcg
+     */
+    public static double computeBoundedNDCG(List input, RelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeDCG(input, groundTruth, k) / computeIDCG(k, groundTruth.size());
+    }
     
     /**
      * This method compute the standard basic binary DCG metric.
@@ -116,6 +244,22 @@ public class NDCG {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
             return 0.0;
         }
+
+        return computeDCG(input, RelevanceSet.of(groundTruth), k);
+    }
+
+    /**
+     * This method compute the standard basic binary DCG metric with indexed ground truth.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return dcg
+     */
+    public static double computeDCG(List input, RelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
         
         double dcg = 0.0;
         
@@ -126,9 +270,10 @@ public class NDCG {
             nK = input.size();
         }
         
+        double[] discount = DiscountTable.discounts(nK);
         for (int i = 0; i < nK; i++) {
             if (groundTruth.contains(input.get(i))) {
-                dcg += Math.log(2) / Math.log(i + 2);
+                dcg += discount[i];
             }
         }
         
@@ -147,15 +292,21 @@ public class NDCG {
             return 0.0;
         }
         
-        double idcg = 0.0;
-
         // With our assumption, the ideal list contents k relevant items.
-        // So we sum up all the item.
-        for (int i = 0; i < k; i++) {
-            idcg += Math.log(2) / Math.log(i + 2);
-        }
-        
-        return idcg;
+        // So we sum up all the item, cached in discount table.
+        return DiscountTable.idcg(k);
+    }
+
+    /**
+     * This method computes DCG metric of rankList with ideal order, bounded by the real ground truth size.
+     * I.e., the ideal list contents min(k, numRelevant) relevant items.
+     * 
+     * @param k
+     * @param numRelevant
+     * @return idcg
+     */
+    public static double computeIDCG(int k, int numRelevant) throws Exception {
+        return DiscountTable.idcg(Math.min(k, numRelevant));
     }
     
     /**
@@ -170,6 +321,22 @@ public class NDCG {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
             return 0.0;
         }
+
+        return computeCG(input, RelevanceSet.of(groundTruth), k);
+    }
+
+    /**
+     * This method computes the cumulated gain with indexed ground truth.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return cg
+     */
+    public static double computeCG(List input, RelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
         
         double cg = 0.0;
         
@@ -188,4 +355,171 @@ public class NDCG {
         
         return cg;
     }
+
+    /**
+     * This method compute the basic NDCG metric on primitive item ids, without boxing.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return ndcg
+     */
+    public static double computeNDCG(int[] input, IntRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        // Note: for IDCG, we need to keep the value of k unchange, not reduce to ranklist's length.
+        return computeDCG(input, groundTruth, k) / computeIDCG(k);
+    }
+
+    /**
+     * This method compute the standard basic binary DCG metric on primitive item ids, without boxing.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return dcg
+     */
+    public static double computeDCG(int[] input, IntRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        double dcg = 0.0;
+        
+        // Reduce k to ranklist size to avoid out of range error and to imply 0 gain.
+        int nK = Math.min(k, input.length);
+        double[] discount = DiscountTable.discounts(nK);
+        for (int i = 0; i < nK; i++) {
+            if (groundTruth.containsInt(input[i])) {
+                dcg += discount[i];
+            }
+        }
+        
+        return dcg;
+    }
+
+    /**
+     * This method compute the basic NDCG metric on primitive item ids, without boxing.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return ndcg
+     */
+    public static double computeNDCG(long[] input, LongRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        // Note: for IDCG, we need to keep the value of k unchange, not reduce to ranklist's length.
+        return computeDCG(input, groundTruth, k) / computeIDCG(k);
+    }
+
+    /**
+     * This method compute the standard basic binary DCG metric on primitive item ids, without boxing.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return dcg
+     */
+    public static double computeDCG(long[] input, LongRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        double dcg = 0.0;
+        
+        // Reduce k to ranklist size to avoid out of range error and to imply 0 gain.
+        int nK = Math.min(k, input.length);
+        double[] discount = DiscountTable.discounts(nK);
+        for (int i = 0; i < nK; i++) {
+            if (groundTruth.containsLong(input[i])) {
+                dcg += discount[i];
+            }
+        }
+        
+        return dcg;
+    }
+
+    /**
+     * This method compute graded NDCG metric.
+     * Relevance score: grade of each item in judgment, 0 for unjudged items.
+     * IDCG is computed from the ideal order of all judged relevant items.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param exponentialGain true: gain = 2^grade - 1, false: gain = grade.
+     * @return ndcg
+     */
+    public static double computeGradedNDCG(List input, GradedRelevanceSet groundTruth, int k, boolean exponentialGain) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeGradedDCG(input, groundTruth, k, exponentialGain) / computeGradedIDCG(groundTruth, k, exponentialGain);
+    }
+
+    /**
+     * This method compute graded DCG metric.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param exponentialGain true: gain = 2^grade - 1, false: gain = grade.
+     * @return dcg
+     */
+    public static double computeGradedDCG(List input, GradedRelevanceSet groundTruth, int k, boolean exponentialGain) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        double dcg = 0.0;
+        
+        // Reduce k to ranklist size to avoid out of range error and to imply 0 gain.
+        int nK = Math.min(k, input.size());
+        double[] discount = DiscountTable.discounts(nK);
+        for (int i = 0; i < nK; i++) {
+            float grade = groundTruth.getGrade(input.get(i));
+            if (grade > 0) {
+                dcg += computeGain(grade, exponentialGain) * discount[i];
+            }
+        }
+        
+        return dcg;
+    }
+
+    /**
+     * This method computes graded DCG metric of the ideal rank list, i.e., judged items sorted by grade descending.
+     * 
+     * @param groundTruth
+     * @param k
+     * @param exponentialGain true: gain = 2^grade - 1, false: gain = grade.
+     * @return idcg
+     */
+    public static double computeGradedIDCG(GradedRelevanceSet groundTruth, int k, boolean exponentialGain) throws Exception {
+        if ((groundTruth == null) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        float[] idealGrades = groundTruth.getIdealGrades();
+        int nK = Math.min(k, idealGrades.length);
+        double[] discount = DiscountTable.discounts(nK);
+        double idcg = 0.0;
+        for (int i = 0; i < nK; i++) {
+            idcg += computeGain(idealGrades[i], exponentialGain) * discount[i];
+        }
+
+        return idcg;
+    }
+
+    private static double computeGain(float grade, boolean exponentialGain) {
+        if (exponentialGain) {
+            return Math.pow(2, grade) - 1;
+        }
+        return grade;
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Accumulate NDCG at k, reciprocal rank and precision at k of live ranking requests.
+ * Many request threads can record at the same time without locking: sums are striped adders.
+ * Read the means of the current time window with snapshot(), and start a new window with snapshotAndReset().
+ *
+ * Values of each request are computed by NDCG, ReciprocalRank and Precision, so they match batch evaluation.
+ *
+ * @author THNghiep
+ */
+public class OnlineMetricAccumulator {
+
+    // Yields while waiting for writers of a swapped window, then parks.
+    private static final int MAX_YIELD = 64;
+    // Longest park while waiting for writers: adds are short, so this is rarely reached.
+    private static final long MAX_PARK_NANOS = 1000000;
+
+    private final int k;
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window());
+
+    /**
+     * @param k cutoff of NDCG and precision.
+     */
+    public OnlineMetricAccumulator(int k) {
+        this.k = k;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Record one request. Null or empty rank list is skipped, as in batch mean methods.
+     *
+     * @param rankList
+     * @param groundTruth
+     * @throws Exception
+     */
+    public void record(List rankList, RelevanceSet groundTruth) throws Exception {
+        if ((rankList == null) || (rankList.isEmpty())) {
+            return;
+        }
+        add(NDCG.computeNDCG(rankList, groundTruth, k), ReciprocalRank.computeRR(rankList, groundTruth),
+                Precision.computePrecisionAtK(rankList, groundTruth, k));
+    }
+
+    /**
+     * Record one request of int item ids, without boxing.
+     *
+     * @param rankList
+     * @param groundTruth
+     * @throws Exception
+     */
+    public void record(int[] rankList, IntRelevanceSet groundTruth) throws Exception {
+        if ((rankList == null) || (rankList.length == 0)) {
+            return;
+        }
+        add(NDCG.computeNDCG(rankList, groundTruth, k), ReciprocalRank.computeRR(rankList, groundTruth),
+                Precision.computePrecisionAtK(rankList, groundTruth, k));
+    }
+
+    /**
+     * Means of the current window.
+     * Requests recorded concurrently with this call may be only partly included.
+     *
+     * @return
+     */
+    public Snapshot snapshot() {
+        Window current = window.get();
+        return new Snapshot(current.count.sum(), current.sumNDCG.sum(), current.sumRR.sum(), current.sumPrecision.sum());
+    }
+
+    /**
+     * Means of the current window, then start a new window.
+     * All metrics of a request are counted in the same window: the window is swapped atomically,
+     * and it is read only after requests being added to it have finished.
+     *
+     * @return
+     */
+    public Snapshot snapshotAndReset() {
+        Window old = window.getAndSet(new Window());
+        // Adds are a few adder updates, so this wait is short: a few yields, then parks of growing length.
+        long parkNanos = 1000;
+        for (int i = 0; old.hasWriter(); i++) {
+            if (i < MAX_YIELD) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+        return new Snapshot(old.count.sum(), old.sumNDCG.sum(), old.sumRR.sum(), old.sumPrecision.sum());
+    }
+
+    /**
+     * Add metrics of one request to the current window, all or nothing.
+     */
+    private void add(double ndcg, double rr, double precision) {
+        while (true) {
+            Window current = window.get();
+            current.writersIn.increment();
+            // Window swapped before this writer was seen: retry in the new window.
+            if (window.get() != current) {
+                current.writersOut.increment();
+                continue;
+            }
+            current.sumNDCG.add(ndcg);
+            current.sumRR.add(rr);
+            current.sumPrecision.add(precision);
+            current.count.increment();
+            current.writersOut.increment();
+            return;
+        }
+    }
+
+    /**
+     * Sums of one time window.
+     */
+    private static class Window {
+
+        // Requests being added to this window: entered minus left. Striped, so writers do not share a counter.
+        final LongAdder writersIn = new LongAdder();
+        final LongAdder writersOut = new LongAdder();
+        final LongAdder count = new LongAdder();
+        final DoubleAdder sumNDCG = new DoubleAdder();
+        final DoubleAdder sumRR = new DoubleAdder();
+        final DoubleAdder sumPrecision = new DoubleAdder();
+
+        /**
+         * Whether a writer may still be adding. Read left before entered: a writer leaves after it enters,
+         * so equal sums mean that no writer was inside between the two reads.
+         * Once the window is swapped, later writers leave without adding.
+         */
+        boolean hasWriter() {
+            long out = writersOut.sum();
+            return writersIn.sum() != out;
+        }
+    }
+
+    /**
+     * Means of a time window.
+     */
+    public static class Snapshot {
+
+        private final long count;
+        private final double meanNDCG;
+        private final double meanRR;
+        private final double meanPrecision;
+
+        Snapshot(long count, double sumNDCG, double sumRR, double sumPrecision) {
+            this.count = count;
+            this.meanNDCG = (count == 0) ? 0 : sumNDCG / count;
+            this.meanRR = (count == 0) ? 0 : sumRR / count;
+            this.meanPrecision = (count == 0) ? 0 : sumPrecision / count;
+        }
+
+        /**
+         * Number of recorded requests.
+         *
+         * @return
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanNDCG() {
+            return meanNDCG;
+        }
+
+        public double getMRR() {
+            return meanRR;
+        }
+
+        public double getMeanPrecision() {
+            return meanPrecision;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", NDCG=" + meanNDCG + ", MRR=" + meanRR + ", P=" + meanPrecision;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import thn.research.textutility.general.ExecutionService;
+
+/**
+ * Fork-join computation of mean metric over many rank lists.
+ * Used by the parallel mean methods of metric classes.
+ *
+ * Rank lists are cut into chunks of fixed size, each chunk is summed with Kahan compensated summation,
+ * then chunk sums are added in chunk order.
+ * The chunking does not depend on the number of threads, so the result is the same for any pool.
+ *
+ * @author THNghiep
+ */
+public class ParallelEvaluation {
+
+    // Number of rank lists summed sequentially in one task.
+    static final int CHUNK_SIZE = 1024;
+
+    // Prevent instantiation.
+    private ParallelEvaluation() {
+    }
+
+    /**
+     * Score of rank list at index i.
+     */
+    public interface QueryScorer {
+
+        double score(int i) throws Exception;
+    }
+
+    /**
+     * New scorer for each chunk, so that a scorer can own scratch state without being shared between threads.
+     */
+    interface ScorerFactory {
+
+        QueryScorer newScorer();
+    }
+
+    /**
+     * Compute mean score over all non-empty rank lists of input.
+     *
+     * @param input
+     * @param scorer called only for non-empty rank lists.
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return mean, 0 if there is no non-empty rank list.
+     * @throws Exception
+     */
+    public static double computeMean(List<List> input, QueryScorer scorer, ForkJoinPool pool) throws Exception {
+        return computeMeanByChunk(input, () -> scorer, pool);
+    }
+
+    /**
+     * Compute mean score over all non-empty rank lists of input, with one scorer per chunk.
+     *
+     * @param input
+     * @param scorerFactory called once per chunk, in the thread that scores the chunk.
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return mean, 0 if there is no non-empty rank list.
+     * @throws Exception
+     */
+    static double computeMeanByChunk(List<List> input, ScorerFactory scorerFactory, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (input.isEmpty())) {
+            return 0.0;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        int numChunk = (input.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        double[] chunkSum = new double[numChunk];
+        double[] chunkCompensation = new double[numChunk];
+        int[] chunkNumInput = new int[numChunk];
+        try {
+            pool.invoke(new ChunkTask(input, scorerFactory, 0, numChunk, chunkSum, chunkCompensation, chunkNumInput));
+        } catch (ScorerException e) {
+            throw (Exception) e.getCause();
+        }
+
+        // Reduce in chunk order, still compensated.
+        double sum = 0;
+        double compensation = 0;
+        long numInput = 0;
+        for (int c = 0; c < numChunk; c++) {
+            double y = chunkSum[c] - (compensation + chunkCompensation[c]);
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            numInput += chunkNumInput[c];
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sum / numInput;
+    }
+
+    /**
+     * Carry checked exception of scorer out of fork-join task.
+     */
+    private static class ScorerException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ScorerException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Split chunk range in half until one chunk is left, then sum that chunk.
+     */
+    private static class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<List> input;
+        private final ScorerFactory scorerFactory;
+        private final int fromChunk;
+        private final int toChunk;
+        private final double[] chunkSum;
+        private final double[] chunkCompensation;
+        private final int[] chunkNumInput;
+
+        ChunkTask(List<List> input, ScorerFactory scorerFactory, int fromChunk, int toChunk,
+                double[] chunkSum, double[] chunkCompensation, int[] chunkNumInput) {
+            this.input = input;
+            this.scorerFactory = scorerFactory;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.chunkSum = chunkSum;
+            this.chunkCompensation = chunkCompensation;
+            this.chunkNumInput = chunkNumInput;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ChunkTask(input, scorerFactory, fromChunk, middle, chunkSum, chunkCompensation, chunkNumInput),
+                        new ChunkTask(input, scorerFactory, middle, toChunk, chunkSum, chunkCompensation, chunkNumInput));
+                return;
+            }
+
+            int from = fromChunk * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, input.size());
+            double sum = 0;
+            double compensation = 0;
+            int numInput = 0;
+            QueryScorer scorer = scorerFactory.newScorer();
+            try {
+                for (int i = from; i < to; i++) {
+                    if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                        numInput++;
+                        double y = scorer.score(i) - compensation;
+                        double t = sum + y;
+                        compensation = (t - sum) - y;
+                        sum = t;
+                    }
+                }
+            } catch (Exception e) {
+                throw new ScorerException(e);
+            }
+            chunkSum[fromChunk] = sum;
+            chunkCompensation[fromChunk] = compensation;
+            chunkNumInput[fromChunk] = numInput;
+        }
+    }
+}
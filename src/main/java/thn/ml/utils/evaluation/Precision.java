@@ -6,6 +6,7 @@
 package thn.research.textutility.evaluation;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class content methods for computing metric related to Precision. 
@@ -34,18 +35,8 @@ public class Precision {
             return 0.0;
         }
 
-        double sumPrecision = 0;
-        int numInput = 0;
-        for (int i = 0; i < input.size(); i++) {
-            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
-                numInput++;
-                sumPrecision += computePrecisionAtK(input.get(i), groundTruth, k);
-            }
-        }
-        if (numInput == 0) {
-            return 0;
-        }
-        return sumPrecision / numInput;
+        // Index the shared ground truth once for all rank lists.
+        return new SharedGroundTruthEvaluator(groundTruth).computeMeanPrecisionAtK(input, k);
     }
 
     /**
@@ -75,6 +66,44 @@ public class Precision {
         return sumPrecision / numInput;
     }
 
+    /**
+     * Compute mean precision at k in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanPrecisionAtKParallel(List<List> input, List<List> groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        return ParallelEvaluation.computeMean(input, i -> computePrecisionAtK(input.get(i), groundTruth.get(i), k), pool);
+    }
+
+    /**
+     * Compute mean precision at k with shared ground truth in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanPrecisionAtKSharedGroundTruthParallel(List<List> input, List groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // Index the shared ground truth once, then share it read-only between threads.
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        return ParallelEvaluation.computeMean(input, i -> computePrecisionAtK(input.get(i), sharedGroundTruth, k), pool);
+    }
+
     /**
      * This method computes precision based on relevant documents retrieved and
      * total retrieved documents
@@ -87,9 +116,25 @@ public class Precision {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
             return 0.0;
         }
+
+        return computePrecision(input, RelevanceSet.of(groundTruth));
+    }
+
+    /**
+     * This method computes precision based on relevant documents retrieved and
+     * total retrieved documents, with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @return
+     */
+    public static double computePrecision(List input, RelevanceSet groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
         
         // true positive
-        double tp = 0.0;
+        int tp = 0;
 
         for (int i = 0; i < input.size(); i++) {
             if (groundTruth.contains(input.get(i))) {
@@ -114,9 +159,26 @@ public class Precision {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
             return 0.0;
         }
+
+        return computePrecisionAtK(input, RelevanceSet.of(groundTruth), k);
+    }
+
+    /**
+     * This method computes precision with threshold k based on relevant
+     * documents retrieved and k retrieved documents, with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     */
+    public static double computePrecisionAtK(List input, RelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
         
         // true positive
-        double tp = 0.0;
+        int tp = 0;
 
         // count to rank list size but divide by original top k.
         int nN = k;
@@ -133,4 +195,60 @@ public class Precision {
         // k = true positive + false positive.
         return (double) tp / k;
     }
+
+    /**
+     * This method computes precision with threshold k on primitive item ids, without boxing.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     */
+    public static double computePrecisionAtK(int[] input, IntRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        // true positive
+        int tp = 0;
+
+        // count to rank list size but divide by original top k.
+        int nN = Math.min(k, input.length);
+        for (int i = 0; i < nN; i++) {
+            if (groundTruth.containsInt(input[i])) {
+                tp++;
+            }
+        }
+
+        // k = true positive + false positive.
+        return (double) tp / k;
+    }
+
+    /**
+     * This method computes precision with threshold k on primitive item ids, without boxing.
+     *
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return
+     */
+    public static double computePrecisionAtK(long[] input, LongRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        // true positive
+        int tp = 0;
+
+        // count to rank list size but divide by original top k.
+        int nN = Math.min(k, input.length);
+        for (int i = 0; i < nN; i++) {
+            if (groundTruth.containsLong(input[i])) {
+                tp++;
+            }
+        }
+
+        // k = true positive + false positive.
+        return (double) tp / k;
+    }
 }
@@ -6,6 +6,7 @@
 package thn.research.textutility.evaluation;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class content methods for computing metric related to Recall. 
@@ -34,18 +35,8 @@ public class Recall {
             return 0.0;
         }
 
-        double sumRecall = 0;
-        int numInput = 0;
-        for (int i = 0; i < input.size(); i++) {
-            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
-                numInput++;
-                sumRecall += computeRecallAtK(input.get(i), groundTruth, k);
-            }
-        }
-        if (numInput == 0) {
-            return 0;
-        }
-        return sumRecall / numInput;
+        // Index the shared ground truth once for all rank lists.
+        return new SharedGroundTruthEvaluator(groundTruth).computeMeanRecallAtK(input, k);
     }
     
     /**
@@ -63,10 +54,11 @@ public class Recall {
 
         double sumRecall = 0;
         int numInput = 0;
+        HitSet hits = new HitSet();
         for (int i = 0; i < input.size(); i++) {
             if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
                 numInput++;
-                sumRecall += computeRecallAtK(input.get(i), groundTruth.get(i), k);
+                sumRecall += computeRecallAtK(input.get(i), groundTruth.get(i), k, hits);
             }
         }
         if (numInput == 0) {
@@ -75,6 +67,51 @@ public class Recall {
         return sumRecall / numInput;
     }
 
+    /**
+     * Compute mean recall at k in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanRecallAtKParallel(List<List> input, List<List> groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // One scratch hit set per chunk.
+        return ParallelEvaluation.computeMeanByChunk(input, () -> {
+            HitSet hits = new HitSet();
+            return i -> computeRecallAtK(input.get(i), groundTruth.get(i), k, hits);
+        }, pool);
+    }
+
+    /**
+     * Compute mean recall at k with shared ground truth in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMeanRecallAtKSharedGroundTruthParallel(List<List> input, List groundTruth, int k, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // Index the shared ground truth once, then share it read-only between threads.
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        return ParallelEvaluation.computeMeanByChunk(input, () -> {
+            HitSet hits = new HitSet();
+            return i -> computeRecallAtK(input.get(i), sharedGroundTruth, k, hits);
+        }, pool);
+    }
+
     /**
      * This method computes recall based on relevant documents retrieved and
      * total relevant documents
@@ -87,12 +124,91 @@ public class Recall {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
             return 0.0;
         }
+
+        return computeRecall(input, RelevanceSet.of(groundTruth));
+    }
+
+    /**
+     * This method computes recall based on relevant documents retrieved and
+     * total relevant documents, with indexed ground truth.
+     *
+     * @param input
+     * @param groundTruth
+     * @return rec
+     */
+    public static double computeRecall(List input, RelevanceSet groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // The whole rank list is considered.
+        return computeRecallAtK(input, groundTruth, input.size());
+    }
+
+    /**
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return 
+     */
+    public static double computeRecallAtK(List input, List groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeRecallAtK(input, groundTruth, k, new HitSet());
+    }
+
+    /**
+     * Compute recall at k, with caller-owned scratch hit set.
+     */
+    static double computeRecallAtK(List input, List groundTruth, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeRecallAtK(input, RelevanceSet.of(groundTruth), k, hits);
+    }
+
+    /**
+     * Compute recall at k with indexed ground truth.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return 
+     */
+    public static double computeRecallAtK(List input, RelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeRecallAtK(input, groundTruth, k, new HitSet());
+    }
+
+    /**
+     * Compute recall at k, with caller-owned scratch hit set.
+     */
+    static double computeRecallAtK(List input, RelevanceSet groundTruth, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
         
         // true positive
-        double tp = 0.0;
+        int tp = 0;
 
-        for (int i = 0; i < groundTruth.size(); i++) {
-            if (input.contains(groundTruth.get(i))) {
+        // count to rank list size but divide by original top k.
+        int nN = k;
+        if (nN > input.size()) {
+            nN = input.size();
+        }
+        
+        // Each relevant item is retrieved at most once, so skip duplicated hits in rank list.
+        hits.clear(Math.min(nN, groundTruth.size()));
+        for (int i = 0; i < nN; i++) {
+            Object item = input.get(i);
+            if (groundTruth.contains(item) && hits.add(item)) {
                 tp++;
             }
         }
@@ -102,29 +218,79 @@ public class Recall {
     }
 
     /**
+     * Compute recall at k on primitive item ids, without boxing.
      * 
      * @param input
      * @param groundTruth
      * @param k
      * @return 
      */
-    public static double computeRecallAtK(List input, List groundTruth, int k) throws Exception {
-        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty()) || (k <= 0)) {
+    public static double computeRecallAtK(int[] input, IntRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeRecallAtK(input, groundTruth, k, new HitSet());
+    }
+
+    /**
+     * Compute recall at k, with caller-owned scratch hit set.
+     */
+    static double computeRecallAtK(int[] input, IntRelevanceSet groundTruth, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
             return 0.0;
         }
         
         // true positive
-        double tp = 0.0;
+        int tp = 0;
 
         // count to rank list size but divide by original top k.
-        int nN = k;
-        if (nN > input.size()) {
-            nN = input.size();
+        int nN = Math.min(k, input.length);
+        // Each relevant item is retrieved at most once, so skip duplicated hits in rank list.
+        hits.clear(Math.min(nN, groundTruth.size()));
+        for (int i = 0; i < nN; i++) {
+            if (groundTruth.containsInt(input[i]) && hits.addLong(input[i])) {
+                tp++;
+            }
         }
         
-        List topNRankList = input.subList(0, nN);
-        for (int i = 0; i < groundTruth.size(); i++) {
-            if (topNRankList.contains(groundTruth.get(i))) {
+        // ground truth size = true positive + false negative.
+        return (double) tp / groundTruth.size();
+    }
+
+    /**
+     * Compute recall at k on primitive item ids, without boxing.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param k
+     * @return 
+     */
+    public static double computeRecallAtK(long[] input, LongRelevanceSet groundTruth, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+
+        return computeRecallAtK(input, groundTruth, k, new HitSet());
+    }
+
+    /**
+     * Compute recall at k, with caller-owned scratch hit set.
+     */
+    static double computeRecallAtK(long[] input, LongRelevanceSet groundTruth, int k, HitSet hits) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty()) || (k <= 0)) {
+            return 0.0;
+        }
+        
+        // true positive
+        int tp = 0;
+
+        // count to rank list size but divide by original top k.
+        int nN = Math.min(k, input.length);
+        // Each relevant item is retrieved at most once, so skip duplicated hits in rank list.
+        hits.clear(Math.min(nN, groundTruth.size()));
+        for (int i = 0; i < nN; i++) {
+            if (groundTruth.containsLong(input[i]) && hits.addLong(input[i])) {
                 tp++;
             }
         }
@@ -5,6 +5,7 @@
 package thn.research.textutility.evaluation;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class content methods for computing metric related to ReciprocalRank.
@@ -34,18 +35,8 @@ public class ReciprocalRank {
             return 0.0;
         }
 
-        double srr = 0;
-        int numInput = 0;
-        for (int i = 0; i < input.size(); i++) {
-            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
-                numInput++;
-                srr += computeRR(input.get(i), sharedGroundTruth);
-            }
-        }
-        if (numInput == 0) {
-            return 0;
-        }
-        return srr / numInput;
+        // Index the shared ground truth once for all rank lists.
+        return new SharedGroundTruthEvaluator(sharedGroundTruth).computeMRR(input);
     }
     
     /**
@@ -75,6 +66,63 @@ public class ReciprocalRank {
         return srr / numInput;
     }
 
+    /**
+     * Compute Reciprocal Rank of each query, e.g., for significance tests.
+     * Null or empty rank list scores 0, so score vectors of different rankers stay aligned by query.
+     * 
+     * @param input
+     * @param groundTruth
+     * @return score of each rank list in input.
+     * @throws Exception 
+     */
+    public static double[] computeRRPerQuery(List<List> input, List<List> groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null)) {
+            return new double[0];
+        }
+
+        double[] scores = new double[input.size()];
+        for (int i = 0; i < input.size(); i++) {
+            scores[i] = computeRR(input.get(i), groundTruth.get(i));
+        }
+        return scores;
+    }
+
+    /**
+     * Compute Mean Reciprocal Rank in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMRRParallel(List<List> input, List<List> groundTruth, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        return ParallelEvaluation.computeMean(input, i -> computeRR(input.get(i), groundTruth.get(i)), pool);
+    }
+
+    /**
+     * Compute Mean Reciprocal Rank with shared ground truth in parallel.
+     * 
+     * @param input
+     * @param groundTruth
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception 
+     */
+    public static double computeMRRSharedGroundTruthParallel(List<List> input, List groundTruth, ForkJoinPool pool) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // Index the shared ground truth once, then share it read-only between threads.
+        RelevanceSet sharedGroundTruth = RelevanceSet.of(groundTruth);
+        return ParallelEvaluation.computeMean(input, i -> computeRR(input.get(i), sharedGroundTruth), pool);
+    }
+
     /**
      * This method computes the reciprocal rank of 1 list.
      * @param input
@@ -85,6 +133,20 @@ public class ReciprocalRank {
         if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
             return 0.0;
         }
+
+        return computeRR(input, RelevanceSet.of(groundTruth));
+    }
+
+    /**
+     * This method computes the reciprocal rank of 1 list, with indexed ground truth.
+     * @param input
+     * @param groundTruth
+     * @return reciprocal rank.
+     */
+    public static double computeRR(List input, RelevanceSet groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
         
         for (int i = 0; i < input.size(); i++) {
             if (groundTruth.contains(input.get(i))) {
@@ -95,4 +157,46 @@ public class ReciprocalRank {
 
         return 0.0;
     }
+
+    /**
+     * This method computes the reciprocal rank of 1 list of primitive item ids, without boxing.
+     * @param input
+     * @param groundTruth
+     * @return reciprocal rank.
+     */
+    public static double computeRR(int[] input, IntRelevanceSet groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+        
+        for (int i = 0; i < input.length; i++) {
+            if (groundTruth.containsInt(input[i])) {
+                // Reciprocal of first relevant item position.
+                return (double) 1 / (i + 1);
+            }
+        }
+
+        return 0.0;
+    }
+
+    /**
+     * This method computes the reciprocal rank of 1 list of primitive item ids, without boxing.
+     * @param input
+     * @param groundTruth
+     * @return reciprocal rank.
+     */
+    public static double computeRR(long[] input, LongRelevanceSet groundTruth) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.length == 0) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+        
+        for (int i = 0; i < input.length; i++) {
+            if (groundTruth.containsLong(input[i])) {
+                // Reciprocal of first relevant item position.
+                return (double) 1 / (i + 1);
+            }
+        }
+
+        return 0.0;
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Binary relevance judgment of one query, i.e., the indexed ground truth.
+ * All metric classes accept it, so that each relevance check is O(1) instead of a List scan.
+ * Build it once per ground truth and reuse it for every rank list judged against this ground truth.
+ *
+ * Note: duplicated items in ground truth are counted once.
+ *
+ * @author THNghiep
+ */
+public abstract class RelevanceSet {
+
+    /**
+     * Check whether an item is relevant.
+     *
+     * @param item
+     * @return
+     */
+    public abstract boolean contains(Object item);
+
+    /**
+     * Number of relevant items.
+     *
+     * @return
+     */
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Build a hash-backed relevance set from a ground truth collection.
+     *
+     * @param groundTruth
+     * @return null if ground truth is null.
+     */
+    public static RelevanceSet of(Collection<?> groundTruth) {
+        if (groundTruth == null) {
+            return null;
+        }
+        return new HashRelevanceSet(groundTruth);
+    }
+
+    /**
+     * Relevance set backed by a HashSet, for any item type with proper equals and hashCode.
+     */
+    private static class HashRelevanceSet extends RelevanceSet {
+
+        private final Set<Object> items;
+
+        HashRelevanceSet(Collection<?> groundTruth) {
+            items = new HashSet<>(groundTruth);
+        }
+
+        @Override
+        public boolean contains(Object item) {
+            return items.contains(item);
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+    }
+}
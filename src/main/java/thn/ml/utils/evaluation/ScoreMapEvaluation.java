@@ -0,0 +1,179 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.List;
+import java.util.Map;
+import thn.research.textutility.general.ArrayUtility;
+import thn.research.textutility.general.HashMapUtility;
+
+/**
+ * Evaluate unsorted ranker scores at k directly, e.g., HashMap paper id to score.
+ * Only the top k items are selected by a bounded heap, instead of sorting all candidates.
+ * Ties are broken by id ascending, so results are deterministic.
+ *
+ * Note: since only top k items are ranked, reciprocal rank is cut at k, i.e., 0 if no relevant item is in top k.
+ *
+ * @author THNghiep
+ */
+public class ScoreMapEvaluation {
+
+    // Prevent instantiation.
+    private ScoreMapEvaluation() {
+    }
+
+    /**
+     * NDCG at k of the ranking by score, as NDCG.computeNDCG on the top k items.
+     *
+     * @param scores item to score, unsorted. Higher is better.
+     * @param groundTruth relevant items.
+     * @param k cutoff: only the k highest scored items are ranked.
+     * @return NDCG at k, 0 if there is no item or no relevant item.
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> double computeNDCGAtK(Map<K, Float> scores, RelevanceSet groundTruth, int k) throws Exception {
+        return NDCG.computeNDCG(HashMapUtility.getTopKKeysDescending(scores, k), groundTruth, k);
+    }
+
+    /**
+     * Average precision at k of the ranking by score, as AveragePrecision.computeAPAtK on the top k items.
+     *
+     * @param scores item to score, unsorted. Higher is better.
+     * @param groundTruth relevant items.
+     * @param k cutoff: only the k highest scored items are ranked.
+     * @return AP at k, normalized by min(number of ranked items, number of relevant items).
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> double computeAPAtK(Map<K, Float> scores, RelevanceSet groundTruth, int k) throws Exception {
+        return AveragePrecision.computeAPAtK(HashMapUtility.getTopKKeysDescending(scores, k), groundTruth, k);
+    }
+
+    /**
+     * Precision at k of the ranking by score, as Precision.computePrecisionAtK on the top k items.
+     *
+     * @param scores item to score, unsorted. Higher is better.
+     * @param groundTruth relevant items.
+     * @param k cutoff: only the k highest scored items are ranked.
+     * @return relevant items in top k divided by k, even if there are fewer than k items.
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> double computePrecisionAtK(Map<K, Float> scores, RelevanceSet groundTruth, int k) throws Exception {
+        return Precision.computePrecisionAtK(HashMapUtility.getTopKKeysDescending(scores, k), groundTruth, k);
+    }
+
+    /**
+     * Recall at k of the ranking by score, as Recall.computeRecallAtK on the top k items.
+     *
+     * @param scores item to score, unsorted. Higher is better.
+     * @param groundTruth relevant items.
+     * @param k cutoff: only the k highest scored items are ranked.
+     * @return relevant items in top k divided by the number of relevant items.
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> double computeRecallAtK(Map<K, Float> scores, RelevanceSet groundTruth, int k) throws Exception {
+        return Recall.computeRecallAtK(HashMapUtility.getTopKKeysDescending(scores, k), groundTruth, k);
+    }
+
+    /**
+     * Reciprocal rank at k of the ranking by score.
+     * Unlike ReciprocalRank.computeRR on a full rank list, the cutoff applies: a first relevant item below rank k counts as 0.
+     *
+     * @param scores item to score, unsorted. Higher is better.
+     * @param groundTruth relevant items.
+     * @param k cutoff: only the k highest scored items are ranked.
+     * @return 1 / rank of the first relevant item in top k, or 0 if there is none.
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> double computeRRAtK(Map<K, Float> scores, RelevanceSet groundTruth, int k) throws Exception {
+        return ReciprocalRank.computeRR(HashMapUtility.getTopKKeysDescending(scores, k), groundTruth);
+    }
+
+    /**
+     * Select top items once, up to the largest cutoff of evaluator, and add all metrics into result.
+     *
+     * @param scores item to score, unsorted. Higher is better.
+     * @param groundTruth relevant items.
+     * @param evaluator metrics and cutoffs; reciprocal rank is cut at the largest cutoff.
+     * @param result metric sums, one query is added.
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> void evaluate(Map<K, Float> scores, RelevanceSet groundTruth,
+            MultiMetricEvaluator evaluator, MultiMetricResult result) throws Exception {
+        List<K> topK = HashMapUtility.getTopKKeysDescending(scores, evaluator.getMaxCutoff());
+        evaluator.evaluate(topK, groundTruth, result);
+    }
+
+    /**
+     * NDCG at k of the ranking by score, as NDCG.computeNDCG on the top k items.
+     *
+     * @param ids candidate ids.
+     * @param scores score of each id, parallel to ids. Higher is better.
+     * @param groundTruth relevant ids.
+     * @param k cutoff: only the k highest scored ids are ranked.
+     * @return NDCG at k, 0 if there is no item or no relevant item.
+     * @throws Exception
+     */
+    public static double computeNDCGAtK(int[] ids, float[] scores, IntRelevanceSet groundTruth, int k) throws Exception {
+        return NDCG.computeNDCG(ArrayUtility.getTopKIdsDescending(ids, scores, k), groundTruth, k);
+    }
+
+    /**
+     * Average precision at k of the ranking by score, as AveragePrecision.computeAPAtK on the top k items.
+     *
+     * @param ids candidate ids.
+     * @param scores score of each id, parallel to ids. Higher is better.
+     * @param groundTruth relevant ids.
+     * @param k cutoff: only the k highest scored ids are ranked.
+     * @return AP at k, normalized by min(number of ranked items, number of relevant items).
+     * @throws Exception
+     */
+    public static double computeAPAtK(int[] ids, float[] scores, IntRelevanceSet groundTruth, int k) throws Exception {
+        return AveragePrecision.computeAPAtK(ArrayUtility.getTopKIdsDescending(ids, scores, k), groundTruth, k);
+    }
+
+    /**
+     * Precision at k of the ranking by score, as Precision.computePrecisionAtK on the top k items.
+     *
+     * @param ids candidate ids.
+     * @param scores score of each id, parallel to ids. Higher is better.
+     * @param groundTruth relevant ids.
+     * @param k cutoff: only the k highest scored ids are ranked.
+     * @return relevant items in top k divided by k, even if there are fewer than k items.
+     * @throws Exception
+     */
+    public static double computePrecisionAtK(int[] ids, float[] scores, IntRelevanceSet groundTruth, int k) throws Exception {
+        return Precision.computePrecisionAtK(ArrayUtility.getTopKIdsDescending(ids, scores, k), groundTruth, k);
+    }
+
+    /**
+     * Recall at k of the ranking by score, as Recall.computeRecallAtK on the top k items.
+     *
+     * @param ids candidate ids.
+     * @param scores score of each id, parallel to ids. Higher is better.
+     * @param groundTruth relevant ids.
+     * @param k cutoff: only the k highest scored ids are ranked.
+     * @return relevant items in top k divided by the number of relevant items.
+     * @throws Exception
+     */
+    public static double computeRecallAtK(int[] ids, float[] scores, IntRelevanceSet groundTruth, int k) throws Exception {
+        return Recall.computeRecallAtK(ArrayUtility.getTopKIdsDescending(ids, scores, k), groundTruth, k);
+    }
+
+    /**
+     * Reciprocal rank at k of the ranking by score.
+     * Unlike ReciprocalRank.computeRR on a full rank list, the cutoff applies: a first relevant item below rank k counts as 0.
+     *
+     * @param ids candidate ids.
+     * @param scores score of each id, parallel to ids. Higher is better.
+     * @param groundTruth relevant ids.
+     * @param k cutoff: only the k highest scored ids are ranked.
+     * @return 1 / rank of the first relevant item in top k, or 0 if there is none.
+     * @throws Exception
+     */
+    public static double computeRRAtK(int[] ids, float[] scores, IntRelevanceSet groundTruth, int k) throws Exception {
+        return ReciprocalRank.computeRR(ArrayUtility.getTopKIdsDescending(ids, scores, k), groundTruth);
+    }
+}
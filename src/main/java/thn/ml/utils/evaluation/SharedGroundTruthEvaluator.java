@@ -0,0 +1,213 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.List;
+
+/**
+ * Evaluate many rank lists against one shared ground truth.
+ * The ground truth is indexed once when this evaluator is created,
+ * then each rank list is scored in O(k) without any allocation:
+ * recall and F-measure reuse one scratch hit set per call, cleared between rank lists.
+ *
+ * The evaluator is immutable and keeps no scratch state, so one instance can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class SharedGroundTruthEvaluator {
+
+    private final RelevanceSet groundTruth;
+
+    /**
+     * Index the shared ground truth.
+     *
+     * @param groundTruth
+     */
+    public SharedGroundTruthEvaluator(List groundTruth) {
+        this(RelevanceSet.of(groundTruth));
+    }
+
+    /**
+     * Use an already indexed shared ground truth.
+     *
+     * @param groundTruth
+     */
+    public SharedGroundTruthEvaluator(RelevanceSet groundTruth) {
+        this.groundTruth = groundTruth;
+    }
+
+    public RelevanceSet getGroundTruth() {
+        return groundTruth;
+    }
+
+    /**
+     * Compute mean NDCG at K.
+     *
+     * @param input
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    public double computeMeanNDCGAtK(List<List> input, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        // IDCG only depends on k, so compute it once for the whole batch.
+        double idcg = NDCG.computeIDCG(k);
+        double sumNDCG = 0;
+        int numInput = 0;
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                if (k > 0) {
+                    sumNDCG += NDCG.computeDCG(input.get(i), groundTruth, k) / idcg;
+                }
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sumNDCG / numInput;
+    }
+
+    /**
+     * Compute MAP at K.
+     *
+     * @param input
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    public double computeMAPAtK(List<List> input, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        double sumMAP = 0;
+        int numInput = 0;
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                sumMAP += AveragePrecision.computeAPAtK(input.get(i), groundTruth, k);
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sumMAP / numInput;
+    }
+
+    /**
+     * Compute Mean Reciprocal Rank.
+     *
+     * @param input
+     * @return
+     * @throws Exception
+     */
+    public double computeMRR(List<List> input) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        double srr = 0;
+        int numInput = 0;
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                srr += ReciprocalRank.computeRR(input.get(i), groundTruth);
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return srr / numInput;
+    }
+
+    /**
+     * Compute mean precision at k.
+     *
+     * @param input
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    public double computeMeanPrecisionAtK(List<List> input, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        double sumPrecision = 0;
+        int numInput = 0;
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                sumPrecision += Precision.computePrecisionAtK(input.get(i), groundTruth, k);
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sumPrecision / numInput;
+    }
+
+    /**
+     * Compute mean recall at k.
+     *
+     * @param input
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    public double computeMeanRecallAtK(List<List> input, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        double sumRecall = 0;
+        int numInput = 0;
+        HitSet hits = new HitSet();
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                sumRecall += Recall.computeRecallAtK(input.get(i), groundTruth, k, hits);
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sumRecall / numInput;
+    }
+
+    /**
+     * Compute mean F-measure at k. When beta == 1, we have F1 score.
+     *
+     * @param input
+     * @param beta
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    public double computeMeanFMeasureAtK(List<List> input, double beta, int k) throws Exception {
+        if ((input == null) || (groundTruth == null) || (input.isEmpty()) || (groundTruth.isEmpty())) {
+            return 0.0;
+        }
+
+        double sumF = 0;
+        int numInput = 0;
+        HitSet hits = new HitSet();
+        for (int i = 0; i < input.size(); i++) {
+            if ((input.get(i) != null) && (!input.get(i).isEmpty())) {
+                numInput++;
+                sumF += FMeasure.computeFMeasureAtK(input.get(i), groundTruth, beta, k, hits);
+            }
+        }
+        if (numInput == 0) {
+            return 0;
+        }
+        return sumF / numInput;
+    }
+}
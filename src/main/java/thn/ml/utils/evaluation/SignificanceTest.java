@@ -0,0 +1,199 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import thn.research.textutility.general.ExecutionService;
+
+/**
+ * Bootstrap confidence interval and paired significance tests on per-query score vectors,
+ * e.g., from NDCG.computeNDCGPerQuery.
+ * Resamples run in parallel. Each resample has its own random generator seeded from the given seed,
+ * so results are reproducible and do not depend on the number of threads.
+ * Ref:
+ * 1. Efron and Tibshirani, An Introduction to the Bootstrap, 1993.
+ * 2. Smucker et al., A Comparison of Statistical Significance Tests for Information Retrieval Evaluation, CIKM 2007.
+ *
+ * @author THNghiep
+ */
+public class SignificanceTest {
+
+    // Prevent instantiation.
+    private SignificanceTest() {
+    }
+
+    /**
+     * Percentile bootstrap confidence interval of mean score.
+     *
+     * @param scores
+     * @param numResample e.g., 10000.
+     * @param confidenceLevel e.g., 0.95.
+     * @param seed
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return {lower bound, upper bound}.
+     * @throws Exception
+     */
+    public static double[] computeBootstrapConfidenceInterval(double[] scores, int numResample, double confidenceLevel,
+            long seed, ForkJoinPool pool) throws Exception {
+        if ((scores == null) || (scores.length == 0) || (numResample <= 0)) {
+            return new double[]{0.0, 0.0};
+        }
+
+        long[] seeds = createSeeds(seed, numResample);
+        double[] means = new double[numResample];
+        runParallel(pool, numResample, r -> means[r] = resampleMean(scores, 0.0, new SplittableRandom(seeds[r])));
+        Arrays.sort(means);
+
+        double alpha = 1 - confidenceLevel;
+        int lower = (int) Math.floor(alpha / 2 * numResample);
+        int upper = (int) Math.ceil((1 - alpha / 2) * numResample) - 1;
+        lower = Math.max(0, Math.min(numResample - 1, lower));
+        upper = Math.max(lower, Math.min(numResample - 1, upper));
+        return new double[]{means[lower], means[upper]};
+    }
+
+    /**
+     * Two-sided paired bootstrap test of mean difference between two rankers on the same queries.
+     * Null hypothesis: mean difference is 0. Differences are shifted to mean 0 before resampling.
+     *
+     * @param scoresA
+     * @param scoresB
+     * @param numResample e.g., 10000.
+     * @param seed
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return p-value.
+     * @throws Exception
+     */
+    public static double computePairedBootstrapPValue(double[] scoresA, double[] scoresB, int numResample,
+            long seed, ForkJoinPool pool) throws Exception {
+        double[] differences = computeDifferences(scoresA, scoresB);
+        if ((differences.length == 0) || (numResample <= 0)) {
+            return 1.0;
+        }
+
+        double observed = mean(differences);
+        double threshold = Math.abs(observed);
+        long[] seeds = createSeeds(seed, numResample);
+        boolean[] extreme = new boolean[numResample];
+        runParallel(pool, numResample, r -> extreme[r]
+                = Math.abs(resampleMean(differences, observed, new SplittableRandom(seeds[r]))) >= threshold);
+
+        return computePValue(extreme);
+    }
+
+    /**
+     * Two-sided paired randomization (permutation) test of mean difference between two rankers on the same queries.
+     * Each permutation randomly swaps the scores of A and B of each query, i.e., flips the sign of each difference.
+     *
+     * @param scoresA
+     * @param scoresB
+     * @param numPermutation e.g., 10000.
+     * @param seed
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return p-value.
+     * @throws Exception
+     */
+    public static double computePairedRandomizationPValue(double[] scoresA, double[] scoresB, int numPermutation,
+            long seed, ForkJoinPool pool) throws Exception {
+        double[] differences = computeDifferences(scoresA, scoresB);
+        if ((differences.length == 0) || (numPermutation <= 0)) {
+            return 1.0;
+        }
+
+        double threshold = Math.abs(mean(differences));
+        long[] seeds = createSeeds(seed, numPermutation);
+        boolean[] extreme = new boolean[numPermutation];
+        runParallel(pool, numPermutation, r -> extreme[r]
+                = Math.abs(signFlipMean(differences, new SplittableRandom(seeds[r]))) >= threshold);
+
+        return computePValue(extreme);
+    }
+
+    private static double[] computeDifferences(double[] scoresA, double[] scoresB) throws Exception {
+        if ((scoresA == null) || (scoresB == null)) {
+            return new double[0];
+        }
+        if (scoresA.length != scoresB.length) {
+            throw new Exception("Score vectors have to be paired by query.");
+        }
+        double[] differences = new double[scoresA.length];
+        for (int i = 0; i < differences.length; i++) {
+            differences[i] = scoresA[i] - scoresB[i];
+        }
+        return differences;
+    }
+
+    /**
+     * Mean of one bootstrap resample of (values - shift).
+     */
+    private static double resampleMean(double[] values, double shift, SplittableRandom random) {
+        int n = values.length;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[random.nextInt(n)] - shift;
+        }
+        return sum / n;
+    }
+
+    /**
+     * Mean of values with random signs. One random long gives the signs of 64 values.
+     */
+    private static double signFlipMean(double[] values, SplittableRandom random) {
+        int n = values.length;
+        double sum = 0;
+        long bits = 0;
+        for (int i = 0; i < n; i++) {
+            if ((i & 63) == 0) {
+                bits = random.nextLong();
+            }
+            sum += ((bits & 1) == 0) ? values[i] : -values[i];
+            bits >>>= 1;
+        }
+        return sum / n;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /**
+     * p-value with add-one correction, so that it is never 0.
+     */
+    private static double computePValue(boolean[] extreme) {
+        int count = 0;
+        for (boolean e : extreme) {
+            if (e) {
+                count++;
+            }
+        }
+        return (double) (count + 1) / (extreme.length + 1);
+    }
+
+    private static long[] createSeeds(long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[n];
+        for (int i = 0; i < n; i++) {
+            seeds[i] = random.nextLong();
+        }
+        return seeds;
+    }
+
+    private static void runParallel(ForkJoinPool pool, int numResample, IntConsumer task) throws Exception {
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+        // Parallel stream started inside a pool task runs in that pool.
+        pool.submit(() -> IntStream.range(0, numResample).parallel().forEach(task)).get();
+    }
+}
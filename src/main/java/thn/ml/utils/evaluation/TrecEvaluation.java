@@ -0,0 +1,321 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * Streaming evaluation of TREC-style files.
+ * Qrels line: query_id iteration doc_id grade.
+ * Run line: query_id Q0 doc_id rank score tag.
+ * Run files are read line by line, and each query is evaluated as soon as all its lines are read,
+ * so rank lists are never loaded all at once.
+ * When both files are sorted by query id, judgments are streamed as well and memory use does not grow with the number of queries.
+ * Ref: https://trec.nist.gov/trec_eval/
+ *
+ * @author THNghiep
+ */
+public class TrecEvaluation {
+
+    // Large read buffer for run and qrels files of many GB.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Prevent instantiation.
+    private TrecEvaluation() {
+    }
+
+    /**
+     * Receive each rank list of a run file as soon as it is read.
+     */
+    public interface RankListHandler {
+
+        void handle(String queryId, List<String> rankList) throws Exception;
+    }
+
+    /**
+     * Read graded judgments of all queries.
+     *
+     * @param filePath
+     * @return HashMap query id to its judgment.
+     * @throws Exception
+     */
+    public static HashMap<String, GradedRelevanceSet> readQrels(String filePath) throws Exception {
+        HashMap<String, GradedRelevanceSet.Builder> builders = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(
+                        new FileInputStream(filePath), "UTF-8"), BUFFER_SIZE)) {
+            String line;
+            String lastQueryId = null;
+            GradedRelevanceSet.Builder judgment = null;
+            while ((line = reader.readLine()) != null) {
+                StringTokenizer tokenizer = new StringTokenizer(line);
+                if (tokenizer.countTokens() < 4) {
+                    continue;
+                }
+                String queryId = tokenizer.nextToken();
+                tokenizer.nextToken(); // Iteration, not used.
+                String docId = tokenizer.nextToken();
+                float grade = Float.parseFloat(tokenizer.nextToken());
+
+                // Lines of the same query are usually consecutive: avoid map lookup per line.
+                if (!queryId.equals(lastQueryId)) {
+                    judgment = builders.get(queryId);
+                    if (judgment == null) {
+                        judgment = new GradedRelevanceSet.Builder();
+                        builders.put(queryId, judgment);
+                    }
+                    lastQueryId = queryId;
+                }
+                judgment.put(docId, grade);
+            }
+        }
+
+        HashMap<String, GradedRelevanceSet> qrels = new HashMap<>(builders.size() * 2);
+        for (Map.Entry<String, GradedRelevanceSet.Builder> entry : builders.entrySet()) {
+            qrels.put(entry.getKey(), entry.getValue().build());
+        }
+        return qrels;
+    }
+
+    /**
+     * Stream a run file, passing each query's rank list to handler.
+     * Lines of one query have to be consecutive, as in normal run files, otherwise an Exception is thrown.
+     * Rank list is ordered by score descending, ties by doc id descending, as trec_eval does.
+     *
+     * @param filePath
+     * @param handler
+     * @return number of rank lists.
+     * @throws Exception
+     */
+    public static long readRunFile(String filePath, RankListHandler handler) throws Exception {
+        return readRunFile(filePath, false, handler);
+    }
+
+    /**
+     * @param sorted true: query ids have to be increasing, checked in constant memory.
+     * false: finished query ids are kept to detect lines of one query that are not consecutive.
+     */
+    private static long readRunFile(String filePath, boolean sorted, RankListHandler handler) throws Exception {
+        long numRankList = 0;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(
+                        new FileInputStream(filePath), "UTF-8"), BUFFER_SIZE)) {
+            String line;
+            String currentQueryId = null;
+            // Queries already handled, to detect lines of one query that are not consecutive.
+            HashSet<String> doneQueryIds = sorted ? null : new HashSet<>();
+            List<RunEntry> entries = new ArrayList<>();
+            while ((line = reader.readLine()) != null) {
+                StringTokenizer tokenizer = new StringTokenizer(line);
+                if (tokenizer.countTokens() < 5) {
+                    continue;
+                }
+                String queryId = tokenizer.nextToken();
+                tokenizer.nextToken(); // Q0, not used.
+                String docId = tokenizer.nextToken();
+                tokenizer.nextToken(); // Rank, recomputed from score.
+                double score = Double.parseDouble(tokenizer.nextToken());
+
+                if ((currentQueryId != null) && (!queryId.equals(currentQueryId))) {
+                    handleRankList(currentQueryId, entries, handler);
+                    numRankList++;
+                    entries.clear();
+                    if (sorted) {
+                        // Lines of a query that are not consecutive also break the increasing order.
+                        if (queryId.compareTo(currentQueryId) <= 0) {
+                            throw new Exception("Run file is not sorted by query id at query: " + queryId);
+                        }
+                    } else {
+                        doneQueryIds.add(currentQueryId);
+                        if (doneQueryIds.contains(queryId)) {
+                            throw new Exception("Lines of query " + queryId + " are not consecutive in run file.");
+                        }
+                    }
+                }
+                currentQueryId = queryId;
+                entries.add(new RunEntry(docId, score));
+            }
+            if (currentQueryId != null) {
+                handleRankList(currentQueryId, entries, handler);
+                numRankList++;
+            }
+        }
+
+        return numRankList;
+    }
+
+    /**
+     * Compute mean graded NDCG at k of a run, streaming the run file.
+     * Only queries with judgment are evaluated, as trec_eval does.
+     *
+     * @param qrelsFilePath
+     * @param runFilePath
+     * @param k
+     * @param exponentialGain true: gain = 2^grade - 1, false: gain = grade.
+     * @return
+     * @throws Exception
+     */
+    public static double computeMeanGradedNDCGAtK(String qrelsFilePath, String runFilePath, int k, boolean exponentialGain) throws Exception {
+        HashMap<String, GradedRelevanceSet> qrels = readQrels(qrelsFilePath);
+
+        double[] sumNDCG = new double[1];
+        long[] numInput = new long[1];
+        readRunFile(runFilePath, (queryId, rankList) -> {
+            GradedRelevanceSet judgment = qrels.get(queryId);
+            if (judgment != null) {
+                numInput[0]++;
+                sumNDCG[0] += NDCG.computeGradedNDCG(rankList, judgment, k, exponentialGain);
+            }
+        });
+        if (numInput[0] == 0) {
+            return 0;
+        }
+        return sumNDCG[0] / numInput[0];
+    }
+
+    /**
+     * Compute precision, recall, F-measure, AP, NDCG at all cutoffs of evaluator, and reciprocal rank,
+     * streaming both files.
+     * Both files have to be sorted by query id (String order), e.g., by "LC_ALL=C sort -s -k1,1".
+     * Only judgments of the current query are kept in memory, and only running sums are kept for the result.
+     * Only queries with judgment are evaluated, as trec_eval does. Items with grade > 0 are relevant.
+     *
+     * @param qrelsFilePath
+     * @param runFilePath
+     * @param evaluator
+     * @return
+     * @throws Exception
+     */
+    public static MultiMetricResult evaluateSortedFiles(String qrelsFilePath, String runFilePath, MultiMetricEvaluator evaluator) throws Exception {
+        MultiMetricResult result = evaluator.createResult();
+
+        try (QrelsCursor qrels = new QrelsCursor(qrelsFilePath)) {
+            readRunFile(runFilePath, true, (queryId, rankList) -> {
+                GradedRelevanceSet judgment = qrels.seek(queryId);
+                if (judgment != null) {
+                    evaluator.evaluate(rankList, judgment, result);
+                }
+            });
+        }
+
+        return result;
+    }
+
+    private static void handleRankList(String queryId, List<RunEntry> entries, RankListHandler handler) throws Exception {
+        Collections.sort(entries, (RunEntry e1, RunEntry e2) -> {
+            int c = Double.compare(e2.score, e1.score);
+            if (c != 0) {
+                return c;
+            }
+            return e2.docId.compareTo(e1.docId);
+        });
+        List<String> rankList = new ArrayList<>(entries.size());
+        for (RunEntry entry : entries) {
+            rankList.add(entry.docId);
+        }
+        handler.handle(queryId, rankList);
+    }
+
+    /**
+     * One retrieved document of a run.
+     */
+    private static class RunEntry {
+
+        final String docId;
+        final double score;
+
+        RunEntry(String docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Read judgments of a qrels file sorted by query id, one query at a time.
+     */
+    private static class QrelsCursor implements AutoCloseable {
+
+        private final BufferedReader reader;
+        // First line of the next query, already read.
+        private String[] pendingLine;
+        private String lastQueryId;
+
+        QrelsCursor(String filePath) throws Exception {
+            reader = new BufferedReader(
+                    new InputStreamReader(
+                            new FileInputStream(filePath), "UTF-8"), BUFFER_SIZE);
+            pendingLine = readLine();
+        }
+
+        /**
+         * Skip judgments of queries before queryId and return judgment of queryId.
+         *
+         * @param queryId
+         * @return null if queryId has no judgment.
+         * @throws Exception
+         */
+        GradedRelevanceSet seek(String queryId) throws Exception {
+            while ((pendingLine != null) && (pendingLine[0].compareTo(queryId) < 0)) {
+                readJudgment();
+            }
+            if ((pendingLine != null) && (pendingLine[0].equals(queryId))) {
+                return readJudgment();
+            }
+            return null;
+        }
+
+        private GradedRelevanceSet readJudgment() throws Exception {
+            String queryId = pendingLine[0];
+            // Judgments of a query that are not consecutive also break the increasing order.
+            if ((lastQueryId != null) && (queryId.compareTo(lastQueryId) <= 0)) {
+                throw new Exception("Qrels file is not sorted by query id at query: " + queryId);
+            }
+            lastQueryId = queryId;
+
+            GradedRelevanceSet.Builder judgment = new GradedRelevanceSet.Builder();
+            while ((pendingLine != null) && (pendingLine[0].equals(queryId))) {
+                judgment.put(pendingLine[1], Float.parseFloat(pendingLine[2]));
+                pendingLine = readLine();
+            }
+            return judgment.build();
+        }
+
+        /**
+         * @return query id, doc id, grade. Null at end of file.
+         * @throws IOException
+         */
+        private String[] readLine() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                StringTokenizer tokenizer = new StringTokenizer(line);
+                if (tokenizer.countTokens() < 4) {
+                    continue;
+                }
+                String queryId = tokenizer.nextToken();
+                tokenizer.nextToken(); // Iteration, not used.
+                return new String[]{queryId, tokenizer.nextToken(), tokenizer.nextToken()};
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -5,9 +5,12 @@
  */
 package thn.research.textutility.general;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
 /**
  *
@@ -15,16 +18,711 @@ import java.util.List;
  */
 public class ArrayUtility {
 
+    // Block size of parallel shuffle, each block is scattered by one task.
+    private static final int SHUFFLE_BLOCK_SIZE = 1 << 16;
+    // Max number of buckets of parallel shuffle, bounds the block x bucket count table.
+    private static final int MAX_SHUFFLE_BUCKET = 1 << 10;
+    // Arrays shorter than this are selected or sorted in one thread.
+    private static final int PARALLEL_MIN_SIZE = 1 << 16;
+
+    /**
+     * Shuffle in place, without boxing.
+     *
+     * @param array
+     * @throws Exception
+     */
     public static void shufflePrimitiveArray(int[] array) throws Exception {
-        List<Integer> list = new ArrayList<>();
-        for (int i : array) {
-            list.add(i);
+        shuffle(array, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Fisher-Yates shuffle in place, e.g., with a seeded XoRoShiRo128PlusRandom for reproducible runs.
+     *
+     * @param array
+     * @param random
+     * @throws Exception
+     */
+    public static void shuffle(int[] array, Random random) throws Exception {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Fisher-Yates shuffle in place, as shuffle(int[], Random).
+     *
+     * @param array
+     * @param random
+     * @throws Exception
+     */
+    public static void shuffle(long[] array, Random random) throws Exception {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Fisher-Yates shuffle in place, as shuffle(int[], Random).
+     *
+     * @param array
+     * @param random
+     * @throws Exception
+     */
+    public static void shuffle(float[] array, Random random) throws Exception {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            float temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Fisher-Yates shuffle in place, as shuffle(int[], Random).
+     *
+     * @param array
+     * @param random
+     * @throws Exception
+     */
+    public static void shuffle(double[] array, Random random) throws Exception {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Partial Fisher-Yates shuffle: the first k elements become a uniform random sample of the array, in random order.
+     * Costs O(k) instead of O(length), e.g., to sample k negative items.
+     *
+     * @param array
+     * @param k
+     * @param random
+     * @throws Exception
+     */
+    public static void partialShuffle(int[] array, int k, Random random) throws Exception {
+        int n = array.length;
+        int end = Math.min(k, n - 1);
+        for (int i = 0; i < end; i++) {
+            int j = i + random.nextInt(n - i);
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Partial shuffle of the first k elements, as partialShuffle(int[], int, Random).
+     *
+     * @param array
+     * @param k
+     * @param random
+     * @throws Exception
+     */
+    public static void partialShuffle(long[] array, int k, Random random) throws Exception {
+        int n = array.length;
+        int end = Math.min(k, n - 1);
+        for (int i = 0; i < end; i++) {
+            int j = i + random.nextInt(n - i);
+            long temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Partial shuffle of the first k elements, as partialShuffle(int[], int, Random).
+     *
+     * @param array
+     * @param k
+     * @param random
+     * @throws Exception
+     */
+    public static void partialShuffle(float[] array, int k, Random random) throws Exception {
+        int n = array.length;
+        int end = Math.min(k, n - 1);
+        for (int i = 0; i < end; i++) {
+            int j = i + random.nextInt(n - i);
+            float temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Partial shuffle of the first k elements, as partialShuffle(int[], int, Random).
+     *
+     * @param array
+     * @param k
+     * @param random
+     * @throws Exception
+     */
+    public static void partialShuffle(double[] array, int k, Random random) throws Exception {
+        int n = array.length;
+        int end = Math.min(k, n - 1);
+        for (int i = 0; i < end; i++) {
+            int j = i + random.nextInt(n - i);
+            double temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Parallel shuffle for arrays much larger than cache, by random scatter into buckets.
+     * Each block of the array sends each element to a random bucket, then each bucket is shuffled by Fisher-Yates.
+     * This gives a uniform random permutation.
+     * Random generators are seeded per block and per bucket, and blocks have fixed size,
+     * so the result depends only on the seed, not on the number of threads.
+     * Uses a temporary array of the same length.
+     *
+     * @param array
+     * @param seed
+     * @param pool null means ExecutionService.getCpuPool().
+     * @throws Exception
+     */
+    public static void shuffleParallel(int[] array, long seed, ForkJoinPool pool) throws Exception {
+        int n = array.length;
+        if (n < 2 * SHUFFLE_BLOCK_SIZE) {
+            shuffle(array, new XoRoShiRo128PlusRandom(seed));
+            return;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        int numBlock = (n + SHUFFLE_BLOCK_SIZE - 1) / SHUFFLE_BLOCK_SIZE;
+        int numBucket = Math.min(numBlock, MAX_SHUFFLE_BUCKET);
+        long[] seeds = createSeeds(seed, numBlock + numBucket);
+        int[][] offsets = countBuckets(n, numBlock, numBucket, seeds, pool);
+        int[] bucketStart = toBucketStarts(offsets, n, numBucket);
+        int[] scattered = new int[n];
+
+        // Parallel stream started inside a pool task runs in that pool.
+        pool.submit(() -> IntStream.range(0, numBlock).parallel().forEach(b -> {
+            // Same generator as counting, so each element goes to the same bucket.
+            SplittableRandom random = new SplittableRandom(seeds[b]);
+            int[] next = offsets[b];
+            int end = Math.min(n, (b + 1) * SHUFFLE_BLOCK_SIZE);
+            for (int i = b * SHUFFLE_BLOCK_SIZE; i < end; i++) {
+                scattered[next[random.nextInt(numBucket)]++] = array[i];
+            }
+        })).get();
+        pool.submit(() -> IntStream.range(0, numBucket).parallel().forEach(c -> {
+            int from = bucketStart[c];
+            int to = bucketStart[c + 1];
+            Random random = new XoRoShiRo128PlusRandom(seeds[numBlock + c]);
+            for (int i = to - 1; i > from; i--) {
+                int j = from + random.nextInt(i - from + 1);
+                int temp = scattered[i];
+                scattered[i] = scattered[j];
+                scattered[j] = temp;
+            }
+            System.arraycopy(scattered, from, array, from, to - from);
+        })).get();
+    }
+
+    /**
+     * Parallel shuffle, as shuffleParallel(int[], long, ForkJoinPool).
+     *
+     * @param array
+     * @param seed
+     * @param pool null means ExecutionService.getCpuPool().
+     * @throws Exception
+     */
+    public static void shuffleParallel(long[] array, long seed, ForkJoinPool pool) throws Exception {
+        int n = array.length;
+        if (n < 2 * SHUFFLE_BLOCK_SIZE) {
+            shuffle(array, new XoRoShiRo128PlusRandom(seed));
+            return;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        int numBlock = (n + SHUFFLE_BLOCK_SIZE - 1) / SHUFFLE_BLOCK_SIZE;
+        int numBucket = Math.min(numBlock, MAX_SHUFFLE_BUCKET);
+        long[] seeds = createSeeds(seed, numBlock + numBucket);
+        int[][] offsets = countBuckets(n, numBlock, numBucket, seeds, pool);
+        int[] bucketStart = toBucketStarts(offsets, n, numBucket);
+        long[] scattered = new long[n];
+
+        // Parallel stream started inside a pool task runs in that pool.
+        pool.submit(() -> IntStream.range(0, numBlock).parallel().forEach(b -> {
+            // Same generator as counting, so each element goes to the same bucket.
+            SplittableRandom random = new SplittableRandom(seeds[b]);
+            int[] next = offsets[b];
+            int end = Math.min(n, (b + 1) * SHUFFLE_BLOCK_SIZE);
+            for (int i = b * SHUFFLE_BLOCK_SIZE; i < end; i++) {
+                scattered[next[random.nextInt(numBucket)]++] = array[i];
+            }
+        })).get();
+        pool.submit(() -> IntStream.range(0, numBucket).parallel().forEach(c -> {
+            int from = bucketStart[c];
+            int to = bucketStart[c + 1];
+            Random random = new XoRoShiRo128PlusRandom(seeds[numBlock + c]);
+            for (int i = to - 1; i > from; i--) {
+                int j = from + random.nextInt(i - from + 1);
+                long temp = scattered[i];
+                scattered[i] = scattered[j];
+                scattered[j] = temp;
+            }
+            System.arraycopy(scattered, from, array, from, to - from);
+        })).get();
+    }
+
+    /**
+     * Count elements of each block sent to each bucket.
+     *
+     * @return offsets[block][bucket]: first position of the elements of block in bucket, after prefix sums.
+     */
+    private static int[][] countBuckets(int n, int numBlock, int numBucket, long[] seeds, ForkJoinPool pool) throws Exception {
+        int[][] counts = new int[numBlock][numBucket];
+        pool.submit(() -> IntStream.range(0, numBlock).parallel().forEach(b -> {
+            SplittableRandom random = new SplittableRandom(seeds[b]);
+            int[] count = counts[b];
+            int end = Math.min(n, (b + 1) * SHUFFLE_BLOCK_SIZE);
+            for (int i = b * SHUFFLE_BLOCK_SIZE; i < end; i++) {
+                count[random.nextInt(numBucket)]++;
+            }
+        })).get();
+
+        // Buckets in order, blocks in order within each bucket.
+        int position = 0;
+        for (int c = 0; c < numBucket; c++) {
+            for (int b = 0; b < numBlock; b++) {
+                int count = counts[b][c];
+                counts[b][c] = position;
+                position += count;
+            }
+        }
+        return counts;
+    }
+
+    private static int[] toBucketStarts(int[][] offsets, int n, int numBucket) {
+        int[] bucketStart = new int[numBucket + 1];
+        for (int c = 0; c < numBucket; c++) {
+            bucketStart[c] = offsets[0][c];
+        }
+        bucketStart[numBucket] = n;
+        return bucketStart;
+    }
+
+    private static long[] createSeeds(long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[n];
+        for (int i = 0; i < n; i++) {
+            seeds[i] = random.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Reorder array in place by permutation, e.g., from ListUtility.rangerPermutation:
+     * new position i takes old position permutation[i].
+     * Follows each cycle of the permutation once, with one bit per position as extra memory,
+     * so several parallel arrays, e.g., ids, scores and years, can be reordered the same way without copies.
+     *
+     * @param array
+     * @param permutation not modified.
+     * @throws Exception if permutation is not a permutation of the array positions.
+     */
+    public static void applyPermutation(int[] array, int[] permutation) throws Exception {
+        long[] done = checkPermutation(permutation, array.length);
+        for (int start = 0; start < array.length; start++) {
+            if ((done[start >>> 6] & (1L << start)) != 0) {
+                continue;
+            }
+            int first = array[start];
+            int i = start;
+            while (permutation[i] != start) {
+                array[i] = array[permutation[i]];
+                done[i >>> 6] |= 1L << i;
+                i = permutation[i];
+            }
+            array[i] = first;
+            done[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Reorder array in place by permutation, as applyPermutation(int[], int[]):
+     * new position i takes old position permutation[i].
+     *
+     * @param array
+     * @param permutation not modified.
+     * @throws Exception if permutation is not a permutation of the array positions.
+     */
+    public static void applyPermutation(long[] array, int[] permutation) throws Exception {
+        long[] done = checkPermutation(permutation, array.length);
+        for (int start = 0; start < array.length; start++) {
+            if ((done[start >>> 6] & (1L << start)) != 0) {
+                continue;
+            }
+            long first = array[start];
+            int i = start;
+            while (permutation[i] != start) {
+                array[i] = array[permutation[i]];
+                done[i >>> 6] |= 1L << i;
+                i = permutation[i];
+            }
+            array[i] = first;
+            done[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Reorder array in place by permutation, as applyPermutation(int[], int[]):
+     * new position i takes old position permutation[i].
+     *
+     * @param array
+     * @param permutation not modified.
+     * @throws Exception if permutation is not a permutation of the array positions.
+     */
+    public static void applyPermutation(float[] array, int[] permutation) throws Exception {
+        long[] done = checkPermutation(permutation, array.length);
+        for (int start = 0; start < array.length; start++) {
+            if ((done[start >>> 6] & (1L << start)) != 0) {
+                continue;
+            }
+            float first = array[start];
+            int i = start;
+            while (permutation[i] != start) {
+                array[i] = array[permutation[i]];
+                done[i >>> 6] |= 1L << i;
+                i = permutation[i];
+            }
+            array[i] = first;
+            done[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Reorder array in place by permutation, as applyPermutation(int[], int[]):
+     * new position i takes old position permutation[i].
+     *
+     * @param array
+     * @param permutation not modified.
+     * @throws Exception if permutation is not a permutation of the array positions.
+     */
+    public static void applyPermutation(double[] array, int[] permutation) throws Exception {
+        long[] done = checkPermutation(permutation, array.length);
+        for (int start = 0; start < array.length; start++) {
+            if ((done[start >>> 6] & (1L << start)) != 0) {
+                continue;
+            }
+            double first = array[start];
+            int i = start;
+            while (permutation[i] != start) {
+                array[i] = array[permutation[i]];
+                done[i >>> 6] |= 1L << i;
+                i = permutation[i];
+            }
+            array[i] = first;
+            done[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Check that permutation holds each position of an array of the given length once.
+     *
+     * @return cleared bitset of positions.
+     */
+    private static long[] checkPermutation(int[] permutation, int length) throws Exception {
+        if (permutation.length != length) {
+            throw new Exception("Permutation length " + permutation.length + " is not array length " + length + ".");
         }
+        long[] seen = new long[(length + 63) >>> 6];
+        for (int j : permutation) {
+            if ((j < 0) || (j >= length) || ((seen[j >>> 6] & (1L << j)) != 0)) {
+                throw new Exception("Not a permutation, bad or repeated position: " + j);
+            }
+            seen[j >>> 6] |= 1L << j;
+        }
+        Arrays.fill(seen, 0);
+        return seen;
+    }
+
+    /**
+     * Get ids of the k highest scores, best first, without sorting the whole arrays.
+     * Use a bounded primitive min-heap of size k: O(n log k), no boxing.
+     * Ties are broken by id ascending, so the result does not depend on array order.
+     *
+     * @param ids
+     * @param scores score of each id, parallel to ids.
+     * @param k
+     * @return at most k ids.
+     */
+    public static int[] getTopKIdsDescending(int[] ids, float[] scores, int k) throws Exception {
+        return getTopKDescending(ids, scores, k).getIds();
+    }
 
-        Collections.shuffle(list);
+    /**
+     * Get the k highest scores and their ids, best first, as getTopKIdsDescending.
+     *
+     * @param ids
+     * @param scores score of each id, parallel to ids.
+     * @param k
+     * @return at most k ids and scores.
+     * @throws Exception
+     */
+    public static ScoredIds getTopKDescending(int[] ids, float[] scores, int k) throws Exception {
+        if ((ids == null) || (scores == null) || (k <= 0)) {
+            return new ScoredIds(new int[0], new float[0]);
+        }
+        if (ids.length != scores.length) {
+            throw new Exception("Ids and scores have to be parallel arrays.");
+        }
+        return toScoredIds(selectTopK(ids, scores, null, 0, ids.length, k), ids, scores);
+    }
+
+    /**
+     * Get the k highest scores and their ids in parallel, for very large arrays.
+     * Each block of the arrays keeps its own top k, then the block results are merged.
+     * Since ties are broken by id, the result is the same as getTopKDescending.
+     *
+     * @param ids
+     * @param scores score of each id, parallel to ids.
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return at most k ids and scores.
+     * @throws Exception
+     */
+    public static ScoredIds getTopKDescendingParallel(int[] ids, float[] scores, int k, ForkJoinPool pool) throws Exception {
+        if ((ids == null) || (scores == null) || (k <= 0) || (ids.length < PARALLEL_MIN_SIZE)) {
+            return getTopKDescending(ids, scores, k);
+        }
+        if (ids.length != scores.length) {
+            throw new Exception("Ids and scores have to be parallel arrays.");
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
 
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i);
+        int numBlock = Math.min(pool.getParallelism() * 4, (ids.length + PARALLEL_MIN_SIZE - 1) / PARALLEL_MIN_SIZE);
+        int blockSize = (ids.length + numBlock - 1) / numBlock;
+        // Parallel stream started inside a pool task runs in that pool.
+        int[][] blockTopK = pool.submit(() -> IntStream.range(0, numBlock).parallel()
+                .mapToObj(b -> selectTopK(ids, scores, null, b * blockSize, Math.min(ids.length, (b + 1) * blockSize), k))
+                .toArray(int[][]::new)).get();
+
+        int numCandidate = 0;
+        for (int[] positions : blockTopK) {
+            numCandidate += positions.length;
+        }
+        int[] candidates = new int[numCandidate];
+        int n = 0;
+        for (int[] positions : blockTopK) {
+            System.arraycopy(positions, 0, candidates, n, positions.length);
+            n += positions.length;
+        }
+        return toScoredIds(selectTopK(ids, scores, candidates, 0, numCandidate, k), ids, scores);
+    }
+
+    /**
+     * Min-max normalize to [0, 1] in place, as HashMapUtility.minNormalizeHashMap.
+     * All values are 0.5 if they are equal.
+     *
+     * @param values
+     * @throws Exception
+     */
+    public static void minNormalizeArray(float[] values) throws Exception {
+        if ((values == null) || (values.length == 0)) {
+            return;
+        }
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : values) {
+            // Float.compare order, as Collections.min and Collections.max of Float.
+            if (Float.compare(value, min) < 0) {
+                min = value;
+            }
+            if (Float.compare(value, max) > 0) {
+                max = value;
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (min == max) ? 0.5f : (values[i] - min) / (max - min);
+        }
+    }
+
+    /**
+     * Z-score normalize in place, as HashMapUtility.zScoreNormalizeHashMap.
+     * All values are 0 if they are equal.
+     *
+     * @param values
+     * @throws Exception
+     */
+    public static void zScoreNormalizeArray(float[] values) throws Exception {
+        if ((values == null) || (values.length == 0)) {
+            return;
+        }
+        long n = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (float value : values) {
+            n++;
+            double delta = value - mean;
+            mean += delta / n;
+            m2 += delta * (value - mean);
+        }
+        double std = Math.sqrt(m2 / n);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (std == 0) ? 0f : (float) ((values[i] - mean) / std);
+        }
+    }
+
+    /**
+     * Rank normalize in place, as HashMapUtility.rankNormalizeHashMap:
+     * value becomes its average rank divided by (length - 1), a single value becomes 0.5.
+     *
+     * @param values
+     * @throws Exception
+     */
+    public static void rankNormalizeArray(float[] values) throws Exception {
+        if ((values == null) || (values.length == 0)) {
+            return;
+        }
+        int n = values.length;
+        if (n == 1) {
+            values[0] = 0.5f;
+            return;
+        }
+        long[] sortKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortKeys[i] = ((long) toSortableBits(values[i]) << 32) | i;
+        }
+        sortKeys(sortKeys);
+
+        // Runs of equal values share the average of their ranks.
+        int start = 0;
+        while (start < n) {
+            int bits = (int) (sortKeys[start] >> 32);
+            int end = start + 1;
+            while ((end < n) && ((int) (sortKeys[end] >> 32) == bits)) {
+                end++;
+            }
+            float rank = (float) ((start + end - 1) / 2.0 / (n - 1));
+            for (int i = start; i < end; i++) {
+                values[(int) sortKeys[i]] = rank;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Sort keys ascending. Large arrays are sorted in parallel in ExecutionService.getCpuPool().
+     */
+    static void sortKeys(long[] keys) throws Exception {
+        if (keys.length < PARALLEL_MIN_SIZE) {
+            Arrays.sort(keys);
+            return;
+        }
+        // Parallel sort started inside a pool task forks in that pool, not in the common pool.
+        ExecutionService.getCpuPool().submit(() -> Arrays.parallelSort(keys)).get();
+    }
+
+    /**
+     * Float bits as an int whose signed order is Float.compare order.
+     */
+    static int toSortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        // Flip magnitude bits of negative numbers.
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    /**
+     * Select positions of the k best entries, best first.
+     *
+     * @param candidates positions to select from, null means positions from..to themselves.
+     * @param from
+     * @param to
+     */
+    private static int[] selectTopK(int[] ids, float[] scores, int[] candidates, int from, int to, int k) {
+        // Heap of positions in ids, head is the worst kept: lowest score, then highest id.
+        int[] heap = new int[Math.min(k, to - from)];
+        int size = 0;
+        for (int c = from; c < to; c++) {
+            int i = (candidates == null) ? c : candidates[c];
+            if (size < heap.length) {
+                heap[size] = i;
+                siftUp(heap, size, ids, scores);
+                size++;
+            } else if (isWorse(heap[0], i, ids, scores)) {
+                heap[0] = i;
+                siftDown(heap, size, ids, scores);
+            }
+        }
+
+        // Remove worst first, fill from the end.
+        int[] topK = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            topK[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, ids, scores);
+        }
+        return topK;
+    }
+
+    private static ScoredIds toScoredIds(int[] positions, int[] ids, float[] scores) throws Exception {
+        int[] topIds = new int[positions.length];
+        float[] topScores = new float[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            topIds[i] = ids[positions[i]];
+            topScores[i] = scores[positions[i]];
+        }
+        return new ScoredIds(topIds, topScores);
+    }
+
+    // Whether position a ranks below position b.
+    private static boolean isWorse(int a, int b, int[] ids, float[] scores) {
+        int c = Float.compare(scores[a], scores[b]);
+        if (c != 0) {
+            return c < 0;
+        }
+        return ids[a] > ids[b];
+    }
+
+    private static void siftUp(int[] heap, int i, int[] ids, float[] scores) {
+        int node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isWorse(node, heap[parent], ids, scores)) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = node;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] ids, float[] scores) {
+        if (size == 0) {
+            return;
+        }
+        int node = heap[0];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if ((right < size) && isWorse(heap[right], heap[child], ids, scores)) {
+                child = right;
+            }
+            if (!isWorse(heap[child], node, ids, scores)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
         }
+        heap[i] = node;
     }
 }
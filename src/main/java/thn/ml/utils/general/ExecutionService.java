@@ -0,0 +1,430 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared thread pools, so that parallel utilities running together do not oversubscribe the machine:
+ * - CPU pool: a ForkJoinPool sized by GeneralUtility.getCpuParallelism(), which respects cgroup CPU quota.
+ * It can be passed to every utility taking a ForkJoinPool or an ExecutorService.
+ * - I/O pool: GeneralUtility.getIoParallelism() threads with a bounded queue, e.g., for downloads.
+ * Submitting to a full queue blocks the caller.
+ *
+ * Pools are created on first use and use daemon threads. shutdown() waits for submitted tasks, later calls create new pools,
+ * also calls from tasks still running during shutdown().
+ * Each pool exposes queue depth, active threads and task latency through getMetrics().
+ *
+ * @author THNghiep
+ */
+public class ExecutionService {
+
+    // Queued tasks per I/O thread before submission blocks.
+    private static final int IO_QUEUE_PER_THREAD = 16;
+
+    // Volatile: read without lock on the fast path of getCpuPool and getIoPool.
+    private static volatile CpuPool cpuPool;
+    private static volatile IoPool ioPool;
+
+    /**
+     * Shared CPU pool.
+     *
+     * @return
+     */
+    public static CpuPool getCpuPool() {
+        CpuPool pool = cpuPool;
+        if ((pool == null) || pool.isShutdown()) {
+            synchronized (ExecutionService.class) {
+                pool = cpuPool;
+                if ((pool == null) || pool.isShutdown()) {
+                    pool = new CpuPool(GeneralUtility.getCpuParallelism());
+                    cpuPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Shared I/O pool.
+     *
+     * @return
+     */
+    public static IoPool getIoPool() {
+        IoPool pool = ioPool;
+        if ((pool == null) || pool.isShutdown()) {
+            synchronized (ExecutionService.class) {
+                pool = ioPool;
+                if ((pool == null) || pool.isShutdown()) {
+                    int numThread = GeneralUtility.getIoParallelism();
+                    pool = new IoPool(numThread, numThread * IO_QUEUE_PER_THREAD);
+                    ioPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * New I/O pool owned by the caller, e.g., with a thread count given by the user.
+     * Shut it down by shutdownAndAwait.
+     *
+     * @param numThread
+     * @param queueCapacity
+     * @return
+     * @throws Exception
+     */
+    public static IoPool newIoPool(int numThread, int queueCapacity) throws Exception {
+        if ((numThread <= 0) || (queueCapacity <= 0)) {
+            throw new Exception("Thread count and queue capacity have to be positive.");
+        }
+        return new IoPool(numThread, queueCapacity);
+    }
+
+    /**
+     * Shut down shared pools, after their submitted tasks are done.
+     *
+     * @throws Exception
+     */
+    public static void shutdown() throws Exception {
+        // Await outside the lock: a running task may call getCpuPool or getIoPool.
+        CpuPool oldCpuPool;
+        IoPool oldIoPool;
+        synchronized (ExecutionService.class) {
+            oldCpuPool = cpuPool;
+            oldIoPool = ioPool;
+            cpuPool = null;
+            ioPool = null;
+        }
+        if (oldCpuPool != null) {
+            shutdownAndAwait(oldCpuPool);
+        }
+        if (oldIoPool != null) {
+            shutdownAndAwait(oldIoPool);
+        }
+    }
+
+    /**
+     * Shut down executor, then block until all submitted tasks are done.
+     *
+     * @param executor
+     * @throws Exception
+     */
+    public static void shutdownAndAwait(ExecutorService executor) throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * ForkJoinPool timing tasks submitted by execute, submit and invokeAll.
+     * Subtasks forked inside a task, e.g., by a parallel stream, are counted in the latency of that task.
+     */
+    public static class CpuPool extends ForkJoinPool {
+
+        private final TaskTimer timer = new TaskTimer();
+
+        private CpuPool(int parallelism) {
+            super(parallelism, CpuPool::newWorker, null, false);
+        }
+
+        private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("cpu-pool-worker-" + thread.getPoolIndex());
+            return thread;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            super.execute(timer.wrap(task));
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(Callable<T> task) {
+            return super.submit(timer.wrap(task));
+        }
+
+        @Override
+        public ForkJoinTask<?> submit(Runnable task) {
+            return super.submit(timer.wrap(task));
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+            return super.submit(timer.wrap(task), result);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+            List<Callable<T>> timedTasks = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                timedTasks.add(timer.wrap(task));
+            }
+            return super.invokeAll(timedTasks);
+        }
+
+        public PoolMetrics getMetrics() {
+            return timer.toMetrics(getQueuedSubmissionCount() + getQueuedTaskCount(), getActiveThreadCount(), getPoolSize());
+        }
+    }
+
+    /**
+     * Fixed thread pool with a bounded queue: when the queue is full, submission blocks until there is room.
+     */
+    public static class IoPool extends ThreadPoolExecutor {
+
+        private final TaskTimer timer = new TaskTimer();
+
+        private IoPool(int numThread, int queueCapacity) {
+            super(numThread, numThread, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    new DaemonThreadFactory("io-pool-worker-"), new BlockingSubmitPolicy());
+        }
+
+        /**
+         * submit and invokeAll also go through execute.
+         */
+        @Override
+        public void execute(Runnable task) {
+            super.execute(timer.wrap(task));
+        }
+
+        public PoolMetrics getMetrics() {
+            return timer.toMetrics(getQueue().size(), getActiveCount(), getPoolSize());
+        }
+    }
+
+    /**
+     * Snapshot of pool metrics. Latency is measured from submission to start (queue wait) and from start to end (run).
+     */
+    public static class PoolMetrics {
+
+        private final long queueDepth;
+        private final int activeThreads;
+        private final int poolSize;
+        private final long completedTasks;
+        private final double meanQueueWaitMillis;
+        private final double meanRunMillis;
+        private final double maxRunMillis;
+
+        private PoolMetrics(long queueDepth, int activeThreads, int poolSize, long completedTasks,
+                double meanQueueWaitMillis, double meanRunMillis, double maxRunMillis) {
+            this.queueDepth = queueDepth;
+            this.activeThreads = activeThreads;
+            this.poolSize = poolSize;
+            this.completedTasks = completedTasks;
+            this.meanQueueWaitMillis = meanQueueWaitMillis;
+            this.meanRunMillis = meanRunMillis;
+            this.maxRunMillis = maxRunMillis;
+        }
+
+        public long getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getActiveThreads() {
+            return activeThreads;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public long getCompletedTasks() {
+            return completedTasks;
+        }
+
+        public double getMeanQueueWaitMillis() {
+            return meanQueueWaitMillis;
+        }
+
+        public double getMeanRunMillis() {
+            return meanRunMillis;
+        }
+
+        public double getMaxRunMillis() {
+            return maxRunMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Queue depth: " + queueDepth + ". Active threads: " + activeThreads + "/" + poolSize
+                    + ". Completed tasks: " + completedTasks + ". Mean queue wait: " + meanQueueWaitMillis + " ms"
+                    + ". Mean run: " + meanRunMillis + " ms. Max run: " + maxRunMillis + " ms.";
+        }
+    }
+
+    /**
+     * Tasks run on an executor, awaited together without shutting the executor down,
+     * e.g., to join tasks submitted to a shared pool.
+     */
+    public static class TaskGroup {
+
+        private final Executor executor;
+        private long numPending;
+        private Throwable failure;
+
+        public TaskGroup(Executor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * Run task on the executor. Blocks if the executor is an IoPool with a full queue.
+         *
+         * @param task
+         */
+        public void execute(Runnable task) {
+            synchronized (this) {
+                numPending++;
+            }
+            try {
+                executor.execute(() -> {
+                    Throwable error = null;
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        error = e;
+                    } finally {
+                        done(error);
+                    }
+                });
+            } catch (RuntimeException e) {
+                done(null);
+                throw e;
+            }
+        }
+
+        /**
+         * Block until all tasks are done.
+         *
+         * @throws Exception the first task failure.
+         */
+        public synchronized void await() throws Exception {
+            while (numPending > 0) {
+                wait();
+            }
+            if (failure != null) {
+                throw new Exception("Task failed: " + failure.toString(), failure);
+            }
+        }
+
+        private synchronized void done(Throwable error) {
+            if ((failure == null) && (error != null)) {
+                failure = error;
+            }
+            numPending--;
+            if (numPending == 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Queue wait and run time of completed tasks.
+     */
+    private static class TaskTimer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+        private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+        Runnable wrap(Runnable task) {
+            long submitted = System.nanoTime();
+            return () -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    record(submitted, start);
+                }
+            };
+        }
+
+        <T> Callable<T> wrap(Callable<T> task) {
+            long submitted = System.nanoTime();
+            return () -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    record(submitted, start);
+                }
+            };
+        }
+
+        private void record(long submitted, long start) {
+            long run = System.nanoTime() - start;
+            count.increment();
+            waitNanos.add(start - submitted);
+            runNanos.add(run);
+            maxRunNanos.accumulate(run);
+        }
+
+        PoolMetrics toMetrics(long queueDepth, int activeThreads, int poolSize) {
+            long n = count.sum();
+            double meanWait = (n == 0) ? 0 : waitNanos.sum() / 1e6 / n;
+            double meanRun = (n == 0) ? 0 : runNanos.sum() / 1e6 / n;
+            return new PoolMetrics(queueDepth, activeThreads, poolSize, n, meanWait, meanRun, maxRunNanos.get() / 1e6);
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger numThread = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + numThread.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Wait for room in the queue instead of rejecting, so that a fast producer is slowed down to the pool speed.
+     */
+    private static class BlockingSubmitPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Pool is shut down.");
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+            // Shut down while waiting: take the task back, unless a worker already took it.
+            if (executor.isShutdown() && executor.remove(task)) {
+                throw new RejectedExecutionException("Pool is shut down.");
+            }
+        }
+    }
+}
@@ -5,14 +5,174 @@
  */
 package thn.research.textutility.general;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
 /**
+ * Resource detection is container-aware: CPU and memory are capped by cgroup v2 or v1 limits of this process,
+ * read from /sys/fs/cgroup as mounted in the container.
  *
  * @author THNghiep
  */
 public class GeneralUtility {
 
+    // I/O-bound threads per CPU: they mostly wait on the network or disk.
+    private static final int IO_THREADS_PER_CPU = 4;
+    // Cgroup v1 reports no memory limit as a huge number, near Long.MAX_VALUE.
+    private static final long NO_MEMORY_LIMIT = Long.MAX_VALUE / 2;
+
+    /**
+     * Number of cores this process can use, as getNumOfCpu(). At least 1.
+     *
+     * @return
+     */
     public static int getNumOfCore() {
-        Runtime runtime = Runtime.getRuntime();
-        return runtime.availableProcessors();
+        return getNumOfCpu();
+    }
+
+    /**
+     * Number of CPUs this process can use: available processors, capped by cgroup CPU quota,
+     * since older JVMs do not see container limits. At least 1.
+     *
+     * @return
+     */
+    public static int getNumOfCpu() {
+        int numCpu = Runtime.getRuntime().availableProcessors();
+        double quota = getCpuQuota();
+        if (quota > 0) {
+            numCpu = Math.min(numCpu, (int) Math.ceil(quota));
+        }
+        return Math.max(1, numCpu);
+    }
+
+    /**
+     * CPU quota of the cgroup, in CPUs: quota / period, from cgroup v2 cpu.max or cgroup v1 cpu.cfs_quota_us.
+     *
+     * @return quota, or -1 if there is no quota or it cannot be read.
+     */
+    public static double getCpuQuota() {
+        // Cgroup v2: "max 100000" or "200000 100000".
+        String cpuMax = readFirstLine(Paths.get("/sys/fs/cgroup/cpu.max"));
+        if (cpuMax != null) {
+            String[] fields = cpuMax.split("\\s+");
+            if ((fields.length == 2) && !fields[0].equals("max")) {
+                return toQuota(fields[0], fields[1]);
+            }
+            return -1;
+        }
+        // Cgroup v1, quota -1 means no quota.
+        for (String dir : new String[]{"/sys/fs/cgroup/cpu", "/sys/fs/cgroup/cpu,cpuacct"}) {
+            String quota = readFirstLine(Paths.get(dir, "cpu.cfs_quota_us"));
+            String period = readFirstLine(Paths.get(dir, "cpu.cfs_period_us"));
+            if ((quota != null) && (period != null)) {
+                return toQuota(quota, period);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Memory limit of the cgroup in bytes, from cgroup v2 memory.max or cgroup v1 memory.limit_in_bytes.
+     *
+     * @return limit, or -1 if there is no limit or it cannot be read.
+     */
+    public static long getMemoryLimit() {
+        String limit = readFirstLine(Paths.get("/sys/fs/cgroup/memory.max"));
+        if (limit == null) {
+            limit = readFirstLine(Paths.get("/sys/fs/cgroup/memory/memory.limit_in_bytes"));
+        }
+        if ((limit == null) || limit.equals("max")) {
+            return -1;
+        }
+        try {
+            long bytes = Long.parseLong(limit);
+            return ((bytes > 0) && (bytes < NO_MEMORY_LIMIT)) ? bytes : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Number of NUMA nodes of the machine, at least 1. A hint: with several nodes,
+     * one process per node, pinned by numactl or the Kubernetes topology manager, keeps memory access local.
+     *
+     * @return
+     */
+    public static int getNumOfNumaNode() {
+        File[] nodes = new File("/sys/devices/system/node").listFiles((dir, name) -> name.matches("node[0-9]+"));
+        return ((nodes == null) || (nodes.length == 0)) ? 1 : nodes.length;
+    }
+
+    /**
+     * Recommended number of threads for CPU-bound work. At least 1.
+     *
+     * @return
+     */
+    public static int getCpuParallelism() {
+        return getNumOfCpu();
+    }
+
+    /**
+     * Recommended number of threads for I/O-bound work, e.g., downloads. At least 1.
+     *
+     * @return
+     */
+    public static int getIoParallelism() {
+        return getNumOfCpu() * IO_THREADS_PER_CPU;
+    }
+
+    /**
+     * Heap budget for caches in bytes: half of the usable heap.
+     * Usable heap is the JVM max heap, capped by 3/4 of the cgroup memory limit to leave room for non-heap memory,
+     * since older JVMs size the default heap from host memory.
+     *
+     * @return
+     */
+    public static long getHeapBudget() {
+        long heap = Runtime.getRuntime().maxMemory();
+        long limit = getMemoryLimit();
+        if (limit > 0) {
+            heap = Math.min(heap, limit / 4 * 3);
+        }
+        return heap / 2;
+    }
+
+    /**
+     * Probe CPU and memory resources once, e.g., to log them or size several pools and caches consistently.
+     *
+     * @return
+     */
+    public static ResourceProbe probeResources() {
+        return new ResourceProbe(getNumOfCpu(), getCpuQuota(), getMemoryLimit(), getNumOfNumaNode(),
+                getCpuParallelism(), getIoParallelism(), getHeapBudget());
+    }
+
+    private static double toQuota(String quota, String period) {
+        try {
+            double q = Double.parseDouble(quota);
+            double p = Double.parseDouble(period);
+            return ((q > 0) && (p > 0)) ? q / p : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * First line of a small system file, trimmed, or null if it cannot be read.
+     */
+    private static String readFirstLine(Path path) {
+        try {
+            if (!Files.isReadable(path)) {
+                return null;
+            }
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            return lines.isEmpty() ? null : lines.get(0).trim();
+        } catch (Exception e) {
+            return null;
+        }
     }
 }
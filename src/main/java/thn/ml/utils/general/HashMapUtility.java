@@ -4,15 +4,16 @@
  */
 package thn.research.textutility.general;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -21,6 +22,9 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class HashMapUtility {
 
+    // Maps smaller than this are selected in one thread.
+    private static final int PARALLEL_MIN_SIZE = 1 << 16;
+
     /**
      * getSortedMapAscending
      *
@@ -31,43 +35,272 @@ public class HashMapUtility {
         if (map == null) {
             return null;
         }
-        List list = new LinkedList(map.entrySet());
+        return getSortedMap(map, false);
+    }
+
+    /**
+     * getSortedMapDescending
+     *
+     * @param map
+     * @return
+     */
+    public static LinkedHashMap getSortedMapDescending(HashMap map) throws Exception {
+        if (map == null) {
+            return null;
+        }
+        return getSortedMap(map, true);
+    }
+
+    /**
+     * Stable sort of map entries by value, into an array instead of a LinkedList.
+     * Float values, the usual case, are sorted as packed primitive keys: score bits in the high half,
+     * original position in the low half, so equal scores keep their order without a stable object sort.
+     */
+    private static LinkedHashMap<Object, Object> getSortedMap(HashMap<?, ?> map, boolean descending) throws Exception {
+        Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[map.size()]);
+        boolean allFloat = true;
+        for (Map.Entry<?, ?> entry : entries) {
+            if (!(entry.getValue() instanceof Float)) {
+                allFloat = false;
+                break;
+            }
+        }
+
+        LinkedHashMap<Object, Object> result = new LinkedHashMap<>();
+        if (allFloat) {
+            long[] sortKeys = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                int bits = ArrayUtility.toSortableBits((Float) entries[i].getValue());
+                if (descending) {
+                    bits = ~bits;
+                }
+                sortKeys[i] = ((long) bits << 32) | i;
+            }
+            ArrayUtility.sortKeys(sortKeys);
+            for (long sortKey : sortKeys) {
+                Map.Entry<?, ?> entry = entries[(int) sortKey];
+                result.put(entry.getKey(), entry.getValue());
+            }
+            return result;
+        }
+
         // If there is map entry with null value, value.compareTo() raise Null Pointer Exception.
         // Only raise exception, not modify data
         // -> have to guarantee that data is not null beforehand.
-        Collections.sort(list, (Object o1, Object o2) -> ((Comparable) ((Map.Entry) (o1)).getValue())
-                .compareTo(((Map.Entry) (o2)).getValue()));
-
-        LinkedHashMap result = new LinkedHashMap();
-        for (Iterator it = list.iterator(); it.hasNext();) {
-            Map.Entry entry = (Map.Entry) it.next();
+        if (descending) {
+            Arrays.sort(entries, (o1, o2) -> compareValue(o2, o1));
+        } else {
+            Arrays.sort(entries, (o1, o2) -> compareValue(o1, o2));
+        }
+        for (Map.Entry<?, ?> entry : entries) {
             result.put(entry.getKey(), entry.getValue());
         }
-
         return result;
     }
 
     /**
-     * getSortedMapDescending
+     * Compare entry values, which have to be mutually comparable as in the former Collections.sort.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValue(Map.Entry<?, ?> o1, Map.Entry<?, ?> o2) {
+        return ((Comparable<Object>) o1.getValue()).compareTo(o2.getValue());
+    }
+
+    /**
+     * Get keys of the k highest scores, best first, without sorting the whole map.
+     * Use a bounded min-heap of size k: O(n log k).
+     * Ties are broken by key ascending, so the result does not depend on map iteration order.
      *
      * @param map
+     * @param k
+     * @return at most k keys.
+     */
+    public static <K extends Comparable<? super K>> List<K> getTopKKeysDescending(Map<K, Float> map, int k) throws Exception {
+        return toKeys(selectTopK(map, k));
+    }
+
+    /**
+     * Get the k highest scores, best first, as a small sorted map. Same order as getTopKKeysDescending.
+     *
+     * @param map
+     * @param k
      * @return
+     * @throws Exception
      */
-    public static LinkedHashMap getSortedMapDescending(HashMap map) throws Exception {
+    public static <K extends Comparable<? super K>> LinkedHashMap<K, Float> getTopKDescending(Map<K, Float> map, int k) throws Exception {
+        return toLinkedHashMap(selectTopK(map, k));
+    }
+
+    /**
+     * Get keys of the k highest scores in parallel, for very large maps.
+     * Each thread keeps its own heap, then the heaps are merged.
+     * Since ties are broken by key, the result is the same as getTopKKeysDescending.
+     *
+     * @param map
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return at most k keys.
+     * @throws Exception
+     */
+    public static <K extends Comparable<? super K>> List<K> getTopKKeysDescendingParallel(Map<K, Float> map, int k,
+            ForkJoinPool pool) throws Exception {
+        if ((map == null) || (k <= 0) || (map.size() < PARALLEL_MIN_SIZE)) {
+            return getTopKKeysDescending(map, k);
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        Comparator<Map.Entry<K, Float>> worstFirst = worstFirst();
+        int capacity = Math.min(k, map.size()) + 1;
+        // Parallel stream started inside a pool task runs in that pool.
+        PriorityQueue<Map.Entry<K, Float>> heap = pool.submit(() -> map.entrySet().parallelStream().collect(
+                () -> new PriorityQueue<>(capacity, worstFirst),
+                (h, entry) -> offer(h, entry, k, worstFirst),
+                (h1, h2) -> {
+                    for (Map.Entry<K, Float> entry : h2) {
+                        offer(h1, entry, k, worstFirst);
+                    }
+                })).get();
+        return toKeys(pollBestFirst(heap));
+    }
+
+    /**
+     * Get the k highest scores of a primitive score map, best first, ties by key ascending.
+     *
+     * @param map
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>> LinkedHashMap<K, Float> getTopKDescending(ScoreMap<K> map, int k) throws Exception {
+        LinkedHashMap<K, Float> topK = new LinkedHashMap<>();
+        if ((map == null) || (k <= 0)) {
+            return topK;
+        }
+        Object[] keys = map.keys;
+        float[] values = map.values;
+        // Heap of slots, head is the worst kept: lowest score, then highest key.
+        Comparator<Integer> worstFirst = (s1, s2) -> {
+            int c = Float.compare(values[s1], values[s2]);
+            if (c != 0) {
+                return c;
+            }
+            return ((K) keys[s2]).compareTo((K) keys[s1]);
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(k, map.size()) + 1, worstFirst);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                offer(heap, slot, k, worstFirst);
+            }
+        }
+        for (int slot : pollBestFirst(heap)) {
+            topK.put((K) keys[slot], values[slot]);
+        }
+        return topK;
+    }
+
+    /**
+     * Get the k highest scores of an int score map, best first, ties by id ascending, as compact arrays.
+     *
+     * @param map
+     * @param k
+     * @return
+     * @throws Exception
+     */
+    public static ScoredIds getTopKDescending(IntScoreMap map, int k) throws Exception {
         if (map == null) {
-            return null;
+            return new ScoredIds(new int[0], new float[0]);
         }
-        List list = new LinkedList(map.entrySet());
-        Collections.sort(list, (Object o1, Object o2) -> ((Comparable) ((Map.Entry) (o2)).getValue())
-                .compareTo(((Map.Entry) (o1)).getValue()));
+        ScoredIds all = map.toScoredIds();
+        return ArrayUtility.getTopKDescending(all.getIds(), all.getScores(), k);
+    }
 
-        LinkedHashMap result = new LinkedHashMap();
-        for (Iterator it = list.iterator(); it.hasNext();) {
-            Map.Entry entry = (Map.Entry) it.next();
-            result.put(entry.getKey(), entry.getValue());
+    /**
+     * Parallel getTopKDescending for very large int score maps. Same result as the sequential version.
+     *
+     * @param map
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception
+     */
+    public static ScoredIds getTopKDescendingParallel(IntScoreMap map, int k, ForkJoinPool pool) throws Exception {
+        if (map == null) {
+            return new ScoredIds(new int[0], new float[0]);
         }
+        ScoredIds all = map.toScoredIds();
+        return ArrayUtility.getTopKDescendingParallel(all.getIds(), all.getScores(), k, pool);
+    }
 
-        return result;
+    /**
+     * @return entries of the k highest scores, best first.
+     */
+    private static <K extends Comparable<? super K>> List<Map.Entry<K, Float>> selectTopK(Map<K, Float> map, int k) {
+        if ((map == null) || (k <= 0)) {
+            return new ArrayList<>();
+        }
+        Comparator<Map.Entry<K, Float>> worstFirst = worstFirst();
+        PriorityQueue<Map.Entry<K, Float>> heap = new PriorityQueue<>(Math.min(k, map.size()) + 1, worstFirst);
+        for (Map.Entry<K, Float> entry : map.entrySet()) {
+            offer(heap, entry, k, worstFirst);
+        }
+        return pollBestFirst(heap);
+    }
+
+    /**
+     * Order for the head of a top k heap: lowest score, then highest key.
+     */
+    private static <K extends Comparable<? super K>> Comparator<Map.Entry<K, Float>> worstFirst() {
+        return (e1, e2) -> {
+            int c = Float.compare(e1.getValue(), e2.getValue());
+            if (c != 0) {
+                return c;
+            }
+            return e2.getKey().compareTo(e1.getKey());
+        };
+    }
+
+    /**
+     * Keep element in a heap of at most k elements, if it is better than the worst kept.
+     */
+    private static <E> void offer(PriorityQueue<E> heap, E element, int k, Comparator<? super E> worstFirst) {
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (worstFirst.compare(element, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * Empty the heap, best first.
+     */
+    private static <E> List<E> pollBestFirst(PriorityQueue<E> heap) {
+        // Heap polls worst first.
+        List<E> elements = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            elements.add(heap.poll());
+        }
+        Collections.reverse(elements);
+        return elements;
+    }
+
+    private static <K> List<K> toKeys(List<Map.Entry<K, Float>> entries) {
+        List<K> keys = new ArrayList<>(entries.size());
+        for (Map.Entry<K, Float> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static <K> LinkedHashMap<K, Float> toLinkedHashMap(List<Map.Entry<K, Float>> entries) {
+        LinkedHashMap<K, Float> map = new LinkedHashMap<>(2 * entries.size(), 1f);
+        for (Map.Entry<K, Float> entry : entries) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
     }
 
     /**
@@ -76,28 +309,79 @@ public class HashMapUtility {
      * @param inputHM1
      * @param inputHM2
      * @param alpha
-     * @param outputHM
+     * @param outputHM can be inputHM1 or inputHM2, combined in place.
      * @throws Exception
      */
     public static void combineLinearTwoHashMap(HashMap<String, Float> inputHM1, HashMap<String, Float> inputHM2,
             float alpha, HashMap<String, Float> outputHM) throws Exception {
 
-        Set<String> keys = new HashSet<>(inputHM1.keySet());
-        keys.addAll(new HashSet<>(inputHM2.keySet()));
-        for (String key : keys) {
-            // If there is key not in one HashMap or null element in one HashMap, auto convert it to 0, not raise exception.
-            Float value1 = inputHM1.get(key);
-            if (value1 == null) {
-                value1 = Float.valueOf(0);
+        // Keys of inputHM1, then keys only in inputHM2, written as they are visited: no copy of the key union.
+        // When outputHM is an input, its entries are updated through the entry, so iteration is never broken.
+        for (Map.Entry<String, Float> entry : inputHM1.entrySet()) {
+            Float combinedValue = combineLinear(entry.getValue(), inputHM2.get(entry.getKey()), alpha);
+            if (outputHM == inputHM1) {
+                entry.setValue(combinedValue);
+            } else {
+                outputHM.put(entry.getKey(), combinedValue);
+            }
+        }
+        for (Map.Entry<String, Float> entry : inputHM2.entrySet()) {
+            if (inputHM1.containsKey(entry.getKey())) {
+                continue;
             }
-            Float value2 = inputHM2.get(key);
-            if (value2 == null) {
-                value2 = Float.valueOf(0);
+            Float combinedValue = combineLinear(null, entry.getValue(), alpha);
+            if (outputHM == inputHM2) {
+                entry.setValue(combinedValue);
+            } else {
+                outputHM.put(entry.getKey(), combinedValue);
             }
+        }
+    }
+
+    private static Float combineLinear(Float value1, Float value2, float alpha) {
+        // If there is key not in one HashMap or null element in one HashMap, auto convert it to 0, not raise exception.
+        if (value1 == null) {
+            value1 = Float.valueOf(0);
+        }
+        if (value2 == null) {
+            value2 = Float.valueOf(0);
+        }
+        return value1 * alpha + value2 * (1 - alpha);
+    }
 
-            Float combinedValue = value1 * alpha + value2 * (1 - alpha);
-            outputHM.put(key, combinedValue);
+    /**
+     * Linear combine of primitive score maps: result = alpha * x + (1 - alpha) * y.
+     * Same result as the HashMap version, without boxing.
+     *
+     * @param inputHM1
+     * @param inputHM2
+     * @param alpha
+     * @param outputHM combined in place when it is inputHM1.
+     * @throws Exception
+     */
+    public static <K> void combineLinearTwoHashMap(ScoreMap<K> inputHM1, ScoreMap<K> inputHM2,
+            float alpha, ScoreMap<K> outputHM) throws Exception {
+        if (outputHM == inputHM1) {
+            outputHM.combineLinear(inputHM2, alpha);
+            return;
+        }
+        // Combine into a copy of inputHM1, since outputHM may be inputHM2.
+        ScoreMap<K> combined = new ScoreMap<>(inputHM1.size() + inputHM2.size());
+        inputHM1.forEach(combined::put);
+        combined.combineLinear(inputHM2, alpha);
+        combined.forEach(outputHM::put);
+    }
+
+    public static void combineLinearTwoHashMap(IntScoreMap inputHM1, IntScoreMap inputHM2,
+            float alpha, IntScoreMap outputHM) throws Exception {
+        if (outputHM == inputHM1) {
+            outputHM.combineLinear(inputHM2, alpha);
+            return;
         }
+        IntScoreMap combined = new IntScoreMap(inputHM1.size() + inputHM2.size());
+        inputHM1.forEach(combined::put);
+        combined.combineLinear(inputHM2, alpha);
+        combined.forEach(outputHM::put);
     }
 
     public static void filterHashMap(HashMap<String, Float> inputHM,
@@ -123,6 +407,22 @@ public class HashMapUtility {
         }
     }
 
+    /**
+     * Filter primitive score maps: outputHM gets keys of filteringHM, with score in inputHM or 0.
+     *
+     * @param inputHM
+     * @param filteringHM
+     * @param outputHM
+     * @throws Exception
+     */
+    public static <K> void filterHashMap(ScoreMap<K> inputHM, ScoreMap<K> filteringHM, ScoreMap<K> outputHM) throws Exception {
+        filteringHM.forEach((key, filteringScore) -> outputHM.put(key, inputHM.get(key)));
+    }
+
+    public static void filterHashMap(IntScoreMap inputHM, IntScoreMap filteringHM, IntScoreMap outputHM) throws Exception {
+        filteringHM.forEach((id, filteringScore) -> outputHM.put(id, inputHM.get(id)));
+    }
+
     public static LinkedHashMap<Integer, Long> arrayToLinkedHashMap(AtomicLong[] array) throws Exception {
         int length = array.length;
         LinkedHashMap<Integer, Long> hm = new LinkedHashMap<>(2 * length, 1f);
@@ -134,24 +434,29 @@ public class HashMapUtility {
         return hm;
     }
 
+    /**
+     * Min-max normalize to [0, 1] in place.
+     * Min and max are found in one pass, then values are rewritten through the entries, without rehashing keys.
+     * All values are 0.5 if they are equal.
+     *
+     * @param hm
+     * @throws Exception
+     */
     public static void minNormalizeHashMap(HashMap<String, Float> hm) throws Exception {
         if ((hm == null) || (hm.isEmpty())) {
             return;
         }
 
-        // Avoid mutable.
         // Have to guarantee that data is not null beforehand.
-        float min = Collections.min(hm.values());
-        float max = Collections.max(hm.values());
+        FloatMinMax minMax = new FloatMinMax();
+        for (Float value : hm.values()) {
+            minMax.accept(value);
+        }
+        float min = minMax.min;
+        float max = minMax.max;
 
-        if (min == max) {
-            for (String id : hm.keySet()) {
-                hm.put(id, 0.5f);
-            }
-        } else {
-            for (String id : hm.keySet()) {
-                hm.put(id, (hm.get(id) - min) / (max - min));
-            }
+        for (Map.Entry<String, Float> entry : hm.entrySet()) {
+            entry.setValue((min == max) ? 0.5f : (entry.getValue() - min) / (max - min));
         }
     }
 
@@ -161,22 +466,195 @@ public class HashMapUtility {
             return;
         }
 
-        // Avoid mutable.
         // Have to guarantee that data is not null beforehand.
-        float min = Collections.min(hm.values());
-        float max = Collections.max(hm.values());
+        FloatMinMax minMax = new FloatMinMax();
+        for (Float value : hm.values()) {
+            minMax.accept(value);
+        }
+        float min = minMax.min;
+        float max = minMax.max;
         if ((min == a) && (max == b)) {
             return;
         }
 
-        if (min == max) {
-            for (String id : hm.keySet()) {
-                hm.put(id, (a + b) / 2);
+        for (Map.Entry<String, Float> entry : hm.entrySet()) {
+            entry.setValue((min == max) ? (a + b) / 2 : (entry.getValue() - min) / (max - min) * (b - a) + a);
+        }
+    }
+
+    /**
+     * Parallel minNormalizeHashMap for very large maps. Same result as the sequential version.
+     *
+     * @param hm
+     * @param pool null means ExecutionService.getCpuPool().
+     * @throws Exception
+     */
+    public static void minNormalizeHashMapParallel(HashMap<String, Float> hm, ForkJoinPool pool) throws Exception {
+        if ((hm == null) || (hm.size() < PARALLEL_MIN_SIZE)) {
+            minNormalizeHashMap(hm);
+            return;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        FloatMinMax minMax = findMinMaxParallel(hm, pool);
+        float min = minMax.min;
+        float max = minMax.max;
+        // Only values change, so entries can be rewritten concurrently.
+        pool.submit(() -> hm.entrySet().parallelStream().forEach(entry
+                -> entry.setValue((min == max) ? 0.5f : (entry.getValue() - min) / (max - min)))).get();
+    }
+
+    /**
+     * Parallel scaleToRangeABHashMap for very large maps. Same result as the sequential version.
+     *
+     * @param hm
+     * @param a
+     * @param b
+     * @param pool null means ExecutionService.getCpuPool().
+     * @throws Exception
+     */
+    public static void scaleToRangeABHashMapParallel(HashMap<String, Float> hm, float a, float b, ForkJoinPool pool) throws Exception {
+        if ((hm == null) || (hm.size() < PARALLEL_MIN_SIZE)) {
+            scaleToRangeABHashMap(hm, a, b);
+            return;
+        }
+        if (a > b) {
+            return;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        FloatMinMax minMax = findMinMaxParallel(hm, pool);
+        float min = minMax.min;
+        float max = minMax.max;
+        if ((min == a) && (max == b)) {
+            return;
+        }
+        pool.submit(() -> hm.entrySet().parallelStream().forEach(entry
+                -> entry.setValue((min == max) ? (a + b) / 2 : (entry.getValue() - min) / (max - min) * (b - a) + a))).get();
+    }
+
+    /**
+     * Z-score normalize in place: (value - mean) / standard deviation, with population standard deviation.
+     * Mean and variance are computed in one pass (Welford), in double.
+     * All values are 0 if they are equal.
+     *
+     * @param hm
+     * @throws Exception
+     */
+    public static void zScoreNormalizeHashMap(HashMap<String, Float> hm) throws Exception {
+        if ((hm == null) || (hm.isEmpty())) {
+            return;
+        }
+
+        // Have to guarantee that data is not null beforehand.
+        long n = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (Float value : hm.values()) {
+            n++;
+            double delta = value - mean;
+            mean += delta / n;
+            m2 += delta * (value - mean);
+        }
+        double std = Math.sqrt(m2 / n);
+
+        for (Map.Entry<String, Float> entry : hm.entrySet()) {
+            entry.setValue((std == 0) ? 0f : (float) ((entry.getValue() - mean) / std));
+        }
+    }
+
+    /**
+     * Rank normalize in place: value becomes its rank divided by (size - 1), so the lowest is 0 and the highest is 1.
+     * Equal values get their average rank. Robust to outliers, unlike min-max normalization.
+     * A single value becomes 0.5, as in minNormalizeHashMap.
+     * Values are ordered as Float.compare, by a primitive sort of packed keys.
+     *
+     * @param hm
+     * @throws Exception
+     */
+    public static void rankNormalizeHashMap(HashMap<String, Float> hm) throws Exception {
+        if ((hm == null) || (hm.isEmpty())) {
+            return;
+        }
+
+        // Have to guarantee that data is not null beforehand.
+        // Setting values does not change the map structure, so both passes iterate in the same order.
+        float[] values = new float[hm.size()];
+        int i = 0;
+        for (Float value : hm.values()) {
+            values[i++] = value;
+        }
+        ArrayUtility.rankNormalizeArray(values);
+        i = 0;
+        for (Map.Entry<String, Float> entry : hm.entrySet()) {
+            entry.setValue(values[i++]);
+        }
+    }
+
+    private static FloatMinMax findMinMaxParallel(HashMap<String, Float> hm, ForkJoinPool pool) throws Exception {
+        // Parallel stream started inside a pool task runs in that pool.
+        return pool.submit(() -> hm.values().parallelStream().collect(
+                FloatMinMax::new, FloatMinMax::accept, FloatMinMax::combine)).get();
+    }
+
+    /**
+     * Running min and max, ordered as Float.compare, i.e., as Collections.min and Collections.max of Float.
+     */
+    private static class FloatMinMax {
+
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+
+        void accept(float value) {
+            if (Float.compare(value, min) < 0) {
+                min = value;
             }
-        } else {
-            for (String id : hm.keySet()) {
-                hm.put(id, (hm.get(id) - min) / (max - min) * (b - a) + a);
+            if (Float.compare(value, max) > 0) {
+                max = value;
             }
         }
+
+        void combine(FloatMinMax other) {
+            accept(other.min);
+            accept(other.max);
+        }
+    }
+
+    /**
+     * Min-max normalize a primitive score map in place, in two passes without rehashing.
+     *
+     * @param hm
+     * @throws Exception
+     */
+    public static void minNormalizeHashMap(ScoreMap<?> hm) throws Exception {
+        if (hm == null) {
+            return;
+        }
+        hm.minNormalize();
+    }
+
+    public static void minNormalizeHashMap(IntScoreMap hm) throws Exception {
+        if (hm == null) {
+            return;
+        }
+        hm.minNormalize();
+    }
+
+    public static void scaleToRangeABHashMap(ScoreMap<?> hm, float a, float b) throws Exception {
+        if (hm == null) {
+            return;
+        }
+        hm.scaleToRange(a, b);
+    }
+
+    public static void scaleToRangeABHashMap(IntScoreMap hm, float a, float b) throws Exception {
+        if (hm == null) {
+            return;
+        }
+        hm.scaleToRange(a, b);
     }
 }
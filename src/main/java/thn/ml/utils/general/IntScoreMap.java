@@ -0,0 +1,398 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map from int item id to primitive float score.
+ * Backed by an open addressing table of int keys and a float array, so neither ids nor scores are boxed.
+ * A missing id has score 0, as in HashMapUtility.combineLinearTwoHashMap.
+ *
+ * Combine, normalize and scale work in place: see also HashMapUtility overloads.
+ * Not thread-safe.
+ *
+ * @author THNghiep
+ */
+public class IntScoreMap {
+
+    // 0 marks empty slot, so id 0 is kept in separate fields.
+    int[] keys;
+    float[] values;
+    boolean hasZero;
+    float zeroValue;
+    int size;
+
+    public IntScoreMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of ids.
+     */
+    public IntScoreMap(int expectedSize) {
+        // Load factor at most 0.5 to keep probe sequences short.
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new float[capacity];
+    }
+
+    /**
+     * Copy a HashMap of scores. Null scores are converted to 0.
+     *
+     * @param map
+     * @return null if map is null.
+     * @throws Exception if map has a null key.
+     */
+    public static IntScoreMap of(Map<Integer, Float> map) throws Exception {
+        if (map == null) {
+            return null;
+        }
+        IntScoreMap scoreMap = new IntScoreMap(map.size());
+        for (Map.Entry<Integer, Float> entry : map.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new Exception("IntScoreMap does not support null key.");
+            }
+            Float value = entry.getValue();
+            scoreMap.put(entry.getKey(), (value == null) ? 0 : value);
+        }
+        return scoreMap;
+    }
+
+    /**
+     * Build from parallel id and score arrays. Later duplicated ids overwrite earlier ones.
+     *
+     * @param ids
+     * @param scores
+     * @return
+     * @throws Exception
+     */
+    public static IntScoreMap of(int[] ids, float[] scores) throws Exception {
+        if (ids.length != scores.length) {
+            throw new Exception("Ids and scores have to be parallel arrays.");
+        }
+        IntScoreMap scoreMap = new IntScoreMap(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            scoreMap.put(ids[i], scores[i]);
+        }
+        return scoreMap;
+    }
+
+    /**
+     * Copy into a HashMap of boxed ids and scores, for code that still needs it.
+     *
+     * @return
+     */
+    public HashMap<Integer, Float> toHashMap() {
+        HashMap<Integer, Float> map = new HashMap<>(2 * size, 1f);
+        if (hasZero) {
+            map.put(0, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                map.put(keys[slot], values[slot]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Copy ids and scores into compact parallel arrays, id 0 first, then in table order.
+     *
+     * @return
+     * @throws Exception
+     */
+    public ScoredIds toScoredIds() throws Exception {
+        int[] ids = new int[size];
+        float[] scores = new float[size];
+        int n = 0;
+        if (hasZero) {
+            ids[n] = 0;
+            scores[n] = zeroValue;
+            n++;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                ids[n] = keys[slot];
+                scores[n] = values[slot];
+                n++;
+            }
+        }
+        return new ScoredIds(ids, scores);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int id) {
+        if (id == 0) {
+            return hasZero;
+        }
+        return keys[findSlot(keys, id)] != 0;
+    }
+
+    /**
+     * Score of id.
+     *
+     * @param id
+     * @return 0 if id is missing.
+     */
+    public float get(int id) {
+        if (id == 0) {
+            return hasZero ? zeroValue : 0;
+        }
+        int slot = findSlot(keys, id);
+        return (keys[slot] == 0) ? 0 : values[slot];
+    }
+
+    /**
+     * Set score of id.
+     *
+     * @param id
+     * @param score
+     */
+    public void put(int id, float score) {
+        if (id == 0) {
+            addZero();
+            zeroValue = score;
+            return;
+        }
+        int slot = insert(id);
+        values[slot] = score;
+    }
+
+    /**
+     * Add delta to score of id, missing id starts from 0.
+     *
+     * @param id
+     * @param delta
+     */
+    public void add(int id, float delta) {
+        if (id == 0) {
+            addZero();
+            zeroValue += delta;
+            return;
+        }
+        int slot = insert(id);
+        values[slot] += delta;
+    }
+
+    /**
+     * Visit all entries, id 0 first, then in table order.
+     *
+     * @param consumer
+     * @throws Exception
+     */
+    public void forEach(EntryConsumer consumer) throws Exception {
+        if (hasZero) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Receive one entry of an IntScoreMap.
+     */
+    public interface EntryConsumer {
+
+        void accept(int id, float score) throws Exception;
+    }
+
+    /**
+     * Linear combine in place: this = alpha * this + (1 - alpha) * other, over the union of ids.
+     * Same result as HashMapUtility.combineLinearTwoHashMap, without building the key union.
+     *
+     * @param other
+     * @param alpha
+     */
+    public void combineLinear(IntScoreMap other, float alpha) {
+        if (other == this) {
+            if (hasZero) {
+                zeroValue = zeroValue * alpha + zeroValue * (1 - alpha);
+            }
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    values[slot] = values[slot] * alpha + values[slot] * (1 - alpha);
+                }
+            }
+            return;
+        }
+        // Scale own scores first, so that ids added from other are not scaled.
+        if (hasZero) {
+            zeroValue = zeroValue * alpha;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                values[slot] = values[slot] * alpha;
+            }
+        }
+        if (other.hasZero) {
+            addZero();
+            zeroValue = zeroValue + other.zeroValue * (1 - alpha);
+        }
+        int[] otherKeys = other.keys;
+        float[] otherValues = other.values;
+        for (int slot = 0; slot < otherKeys.length; slot++) {
+            if (otherKeys[slot] != 0) {
+                int i = insert(otherKeys[slot]);
+                values[i] = values[i] + otherValues[slot] * (1 - alpha);
+            }
+        }
+    }
+
+    /**
+     * Keep only ids of filtering, with own score or 0, as HashMapUtility.filterHashMap.
+     *
+     * @param filtering
+     * @return new map.
+     */
+    public IntScoreMap filterBy(IntScoreMap filtering) {
+        IntScoreMap result = new IntScoreMap(filtering.size);
+        if (filtering.hasZero) {
+            result.put(0, get(0));
+        }
+        int[] filteringKeys = filtering.keys;
+        for (int slot = 0; slot < filteringKeys.length; slot++) {
+            if (filteringKeys[slot] != 0) {
+                result.put(filteringKeys[slot], get(filteringKeys[slot]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Min-max normalize to [0, 1] in place, as HashMapUtility.minNormalizeHashMap.
+     * Min and max are found in one pass, then scores are rewritten in one pass.
+     * All scores are 0.5 if they are equal.
+     */
+    public void minNormalize() {
+        if (size == 0) {
+            return;
+        }
+        float[] minMax = findMinMax();
+        float min = minMax[0];
+        float max = minMax[1];
+        if (hasZero) {
+            zeroValue = (min == max) ? 0.5f : (zeroValue - min) / (max - min);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                values[slot] = (min == max) ? 0.5f : (values[slot] - min) / (max - min);
+            }
+        }
+    }
+
+    /**
+     * Scale from [min, max] to [a, b] in place, as HashMapUtility.scaleToRangeABHashMap.
+     *
+     * @param a
+     * @param b
+     */
+    public void scaleToRange(float a, float b) {
+        if ((size == 0) || (a > b)) {
+            return;
+        }
+        float[] minMax = findMinMax();
+        float min = minMax[0];
+        float max = minMax[1];
+        if ((min == a) && (max == b)) {
+            return;
+        }
+        if (hasZero) {
+            zeroValue = (min == max) ? (a + b) / 2 : (zeroValue - min) / (max - min) * (b - a) + a;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                values[slot] = (min == max) ? (a + b) / 2 : (values[slot] - min) / (max - min) * (b - a) + a;
+            }
+        }
+    }
+
+    /**
+     * @return {min, max} of scores.
+     */
+    private float[] findMinMax() {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        if (hasZero) {
+            min = zeroValue;
+            max = zeroValue;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                float value = values[slot];
+                // Float.compare order, as Collections.min and Collections.max of Float.
+                if (Float.compare(value, min) < 0) {
+                    min = value;
+                }
+                if (Float.compare(value, max) > 0) {
+                    max = value;
+                }
+            }
+        }
+        return new float[]{min, max};
+    }
+
+    private void addZero() {
+        if (!hasZero) {
+            hasZero = true;
+            zeroValue = 0;
+            size++;
+        }
+    }
+
+    /**
+     * Find or add slot of a non-zero id, new id has score 0.
+     */
+    private int insert(int id) {
+        int slot = findSlot(keys, id);
+        if (keys[slot] == 0) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = findSlot(keys, id);
+            }
+            keys[slot] = id;
+            values[slot] = 0;
+            size++;
+        }
+        return slot;
+    }
+
+    private static int findSlot(int[] keys, int id) {
+        int mask = keys.length - 1;
+        // Fibonacci hashing, spread sequential ids over the table.
+        int h = id * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while ((keys[slot] != 0) && (keys[slot] != id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] newKeys = new int[capacity];
+        float[] newValues = new float[capacity];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                int newSlot = findSlot(newKeys, keys[slot]);
+                newKeys[newSlot] = keys[slot];
+                newValues[newSlot] = values[slot];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import ir.vsr.HashMapVector;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Inverted index of a SparseDocumentMatrix: term to postings of (row, weight), rows ascending.
+ * Top k cosine queries only visit documents sharing terms with the query,
+ * and skip documents that cannot enter the top k by WAND pruning on per-term score upper bounds.
+ * Ref: Broder et al., Efficient Query Evaluation using a Two-Level Retrieval Process, CIKM 2003.
+ *
+ * Results are the same as SparseDocumentMatrix.computeTopKCosine:
+ * documents are visited in row order, and each score is summed in term id order as in the matrix,
+ * so scores are bit-identical, and upper bounds are slightly inflated so that rounding never prunes a result.
+ * The index is immutable, so it can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class InvertedDocumentIndex {
+
+    // Relative margin on upper bounds, far above double rounding error of a cosine.
+    private static final double BOUND_MARGIN = 1e-9;
+
+    private final SparseDocumentMatrix matrix;
+    // Postings of term t are [termStart[t], termStart[t + 1]) in postingRows and postingWeights.
+    private final int[] termStart;
+    private final int[] postingRows;
+    private final float[] postingWeights;
+    // Max of |weight| / row norm over postings of each term.
+    private final double[] maxNormalizedWeight;
+
+    private InvertedDocumentIndex(SparseDocumentMatrix matrix, int[] termStart, int[] postingRows, float[] postingWeights,
+            double[] maxNormalizedWeight) {
+        this.matrix = matrix;
+        this.termStart = termStart;
+        this.postingRows = postingRows;
+        this.postingWeights = postingWeights;
+        this.maxNormalizedWeight = maxNormalizedWeight;
+    }
+
+    /**
+     * Build index by transposing the matrix. Zero weights are not indexed: they add nothing to any score.
+     *
+     * @param matrix
+     * @return
+     * @throws Exception
+     */
+    public static InvertedDocumentIndex of(SparseDocumentMatrix matrix) throws Exception {
+        int numTerm = matrix.getNumTerm();
+        int[] termStart = new int[numTerm + 1];
+        for (int j = 0; j < matrix.termIds.length; j++) {
+            if (matrix.weights[j] != 0) {
+                termStart[matrix.termIds[j] + 1]++;
+            }
+        }
+        for (int t = 0; t < numTerm; t++) {
+            termStart[t + 1] += termStart[t];
+        }
+
+        int[] next = new int[numTerm];
+        System.arraycopy(termStart, 0, next, 0, numTerm);
+        int[] postingRows = new int[termStart[numTerm]];
+        float[] postingWeights = new float[termStart[numTerm]];
+        double[] maxNormalizedWeight = new double[numTerm];
+        // Rows in order, so each postings list is sorted by row.
+        for (int row = 0; row < matrix.getNumRow(); row++) {
+            double norm = matrix.norms[row];
+            int end = matrix.rowStart[row + 1];
+            for (int j = matrix.rowStart[row]; j < end; j++) {
+                float weight = matrix.weights[j];
+                if (weight == 0) {
+                    continue;
+                }
+                int t = matrix.termIds[j];
+                int p = next[t]++;
+                postingRows[p] = row;
+                postingWeights[p] = weight;
+                maxNormalizedWeight[t] = Math.max(maxNormalizedWeight[t], Math.abs(weight) / norm);
+            }
+        }
+
+        return new InvertedDocumentIndex(matrix, termStart, postingRows, postingWeights, maxNormalizedWeight);
+    }
+
+    public SparseDocumentMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Top k documents by cosine to query, best first, ties by document id ascending. Only cosine > 0.
+     *
+     * @param query
+     * @param k
+     * @return document id to cosine.
+     * @throws Exception
+     */
+    public LinkedHashMap<String, Double> computeTopKCosine(HashMapVector query, int k) throws Exception {
+        if (k <= 0) {
+            return new LinkedHashMap<>();
+        }
+        return matrix.toResult(search(matrix.toQuery(query), k));
+    }
+
+    /**
+     * Top k documents by cosine to each query, queries in parallel.
+     *
+     * @param queries
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return top k of each query, in query order.
+     * @throws Exception
+     */
+    public List<LinkedHashMap<String, Double>> computeTopKCosine(List<HashMapVector> queries, int k, ForkJoinPool pool) throws Exception {
+        if (k <= 0) {
+            List<LinkedHashMap<String, Double>> results = new ArrayList<>(queries.size());
+            for (int i = 0; i < queries.size(); i++) {
+                results.add(new LinkedHashMap<>());
+            }
+            return results;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+        // Parallel stream started inside a pool task runs in that pool. Collected list keeps query order.
+        return pool.submit(() -> IntStream.range(0, queries.size()).parallel()
+                .mapToObj(i -> matrix.toResult(search(matrix.toQuery(queries.get(i)), k)))
+                .collect(Collectors.toList())).get();
+    }
+
+    /**
+     * Document-at-a-time WAND over the postings of query terms.
+     */
+    private TopKRowHeap search(SparseDocumentMatrix.Query query, int k) {
+        TopKRowHeap heap = new TopKRowHeap(k);
+        int m = query.termIds.length;
+        if ((m == 0) || (query.norm == 0)) {
+            return heap;
+        }
+
+        // Cursor i follows the postings of query term i, query terms are in term id order.
+        int[] position = new int[m];
+        int[] end = new int[m];
+        int[] doc = new int[m];
+        double[] upperBound = new double[m];
+        for (int i = 0; i < m; i++) {
+            int t = query.termIds[i];
+            position[i] = termStart[t];
+            end[i] = termStart[t + 1];
+            doc[i] = (position[i] < end[i]) ? postingRows[position[i]] : Integer.MAX_VALUE;
+            upperBound[i] = Math.abs(query.weights[i]) * maxNormalizedWeight[t] / query.norm * (1 + BOUND_MARGIN);
+        }
+        // Cursors sorted by current document.
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = i;
+        }
+
+        while (true) {
+            sortByDoc(order, doc);
+
+            // Pivot: first cursor where the bound sum can beat the worst kept result.
+            // A later document with equal score ranks below it, so the bound sum has to be strictly greater.
+            double threshold = heap.threshold();
+            double boundSum = 0;
+            int pivot = -1;
+            for (int p = 0; p < m; p++) {
+                if (doc[order[p]] == Integer.MAX_VALUE) {
+                    break;
+                }
+                boundSum += upperBound[order[p]];
+                if (boundSum > threshold) {
+                    pivot = p;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                break;
+            }
+            int pivotDoc = doc[order[pivot]];
+
+            if (doc[order[0]] == pivotDoc) {
+                // All cursors before pivot are on pivot document: score it, summing in term id order.
+                double dot = 0;
+                for (int i = 0; i < m; i++) {
+                    if (doc[i] == pivotDoc) {
+                        dot += postingWeights[position[i]] * query.weights[i];
+                    }
+                }
+                double cosine = matrix.toCosine(query, dot, pivotDoc);
+                if (cosine > 0) {
+                    heap.offer(pivotDoc, cosine);
+                }
+                for (int i = 0; i < m; i++) {
+                    if (doc[i] == pivotDoc) {
+                        advance(i, pivotDoc + 1, position, end, doc);
+                    }
+                }
+            } else {
+                // Skip cursors before pivot to pivot document: documents in between cannot enter.
+                for (int p = 0; p < pivot; p++) {
+                    if (doc[order[p]] < pivotDoc) {
+                        advance(order[p], pivotDoc, position, end, doc);
+                    }
+                }
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * Move cursor to its first posting with row >= target, by galloping then binary search.
+     */
+    private void advance(int i, int target, int[] position, int[] end, int[] doc) {
+        int low = position[i];
+        int high = end[i];
+        int step = 1;
+        while ((low + step < high) && (postingRows[low + step] < target)) {
+            low += step;
+            step <<= 1;
+        }
+        high = Math.min(high, low + step + 1);
+        // First position in [low, high) with row >= target.
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (postingRows[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        position[i] = low;
+        doc[i] = (low < end[i]) ? postingRows[low] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Insertion sort of cursors by current document: few cursors, and nearly sorted between steps.
+     */
+    private static void sortByDoc(int[] order, int[] doc) {
+        for (int p = 1; p < order.length; p++) {
+            int cursor = order[p];
+            int q = p - 1;
+            while ((q >= 0) && (doc[order[q]] > doc[cursor])) {
+                order[q + 1] = order[q];
+                q--;
+            }
+            order[q + 1] = cursor;
+        }
+    }
+}
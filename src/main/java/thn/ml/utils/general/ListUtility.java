@@ -6,10 +6,14 @@
 package thn.research.textutility.general;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  *
@@ -40,6 +44,22 @@ public class ListUtility {
         return newList;
     }
 
+    /**
+     * Index permutation of interposeList: new position i takes old position permutation[i].
+     * Apply it to parallel arrays, e.g., ids and scores, by ArrayUtility.applyPermutation.
+     *
+     * @param length
+     * @return
+     * @throws Exception
+     */
+    public static int[] interposePermutation(int length) throws Exception {
+        int[] permutation = new int[length];
+        for (int i = 0; i < length; i++) {
+            permutation[i] = (i % 2 == 0) ? i / 2 : length - 1 - i / 2;
+        }
+        return permutation;
+    }
+
     /**
      * A1H2 (Algorithm 2 in the paper.)
      *
@@ -50,6 +70,7 @@ public class ListUtility {
     public static List interposeSymmetryList(List list) throws Exception {
         int length = list.size();
 
+        // Odd i swaps with length - i, not its mirror length - 1 - i. It stays in range since i >= 1.
         for (int i = 0; i < length / 2; i++) {
             if (i % 2 == 1) {
                 Object temp = list.get(i);
@@ -61,6 +82,25 @@ public class ListUtility {
         return list;
     }
 
+    /**
+     * Index permutation of interposeSymmetryList: new position i takes old position permutation[i].
+     *
+     * @param length
+     * @return
+     * @throws Exception
+     */
+    public static int[] interposeSymmetryPermutation(int length) throws Exception {
+        int[] permutation = identityPermutation(length);
+        for (int i = 1; i < length / 2; i += 2) {
+            permutation[i] = length - i;
+            permutation[length - i] = i;
+        }
+        return permutation;
+    }
+
+    // Lists shorter than this are shuffled in the calling thread.
+    private static final int RANGER_PARALLEL_MIN_SIZE = 1 << 14;
+
     /**
      * Given a sorted descending list, cut to P part, each part contains sample
      * from all range of list. These samples are randomly got from each range.
@@ -72,53 +112,111 @@ public class ListUtility {
      * @throws Exception
      */
     public static List rangerList(List list, int P) throws Exception {
-        int length = list.size();
-        List newList = new ArrayList(length);
+        return rangerList(list, P, ThreadLocalRandom.current().nextLong(), null);
+    }
 
-        final List<List<Object>> partList = new ArrayList<>(P);
-        List<Integer> partIDList = new ArrayList(P);
-        for (int i = 0; i < P; i++) {
-            partList.add(new ArrayList<>());
-            partIDList.add(i);
+    /**
+     * rangerList with a seed, so that runs are reproducible.
+     *
+     * @param list
+     * @param P
+     * @param seed
+     * @return
+     * @throws Exception
+     */
+    public static List rangerList(List list, int P, long seed) throws Exception {
+        return rangerList(list, P, seed, null);
+    }
+
+    /**
+     * rangerList with a seed, shuffling parts on the given executor.
+     * Each part has its own random generator seeded from seed, so the result does not depend on thread scheduling.
+     * Waits for all parts by blocking, not busy waiting. Small lists and P = 1 are shuffled in the calling thread.
+     *
+     * @param list
+     * @param P
+     * @param seed
+     * @param executor runs part shuffles, null means ExecutionService.getCpuPool(). It is not shut down.
+     * @return
+     * @throws Exception
+     */
+    public static List rangerList(List list, int P, long seed, ExecutorService executor) throws Exception {
+        int[] permutation = rangerPermutation(list.size(), P, seed, executor);
+        List<Object> newList = new ArrayList<>(permutation.length);
+        for (int i : permutation) {
+            newList.add(list.get(i));
         }
+        return newList;
+    }
+
+    /**
+     * Index permutation of rangerList: new position i takes old position permutation[i].
+     * With the same seed, rangerList(list, P, seed, executor) is list reordered by this permutation.
+     *
+     * @param length
+     * @param P
+     * @param seed
+     * @param executor runs part shuffles, null means ExecutionService.getCpuPool(). It is not shut down.
+     * @return
+     * @throws Exception
+     */
+    public static int[] rangerPermutation(int length, int P, long seed, ExecutorService executor) throws Exception {
+        if (P <= 0) {
+            throw new Exception("Number of parts has to be positive.");
+        }
+        SplittableRandom seeds = new SplittableRandom(seed);
+        Random random = new XoRoShiRo128PlusRandom(seeds.nextLong());
 
         // Cut P part, each part contains samples from all ranges.
+        int[] partIDs = identityPermutation(P);
+        int[] partOf = new int[length];
+        int[] partStart = new int[P + 1];
         for (int i = 0; i < length; i++) {
             if (i % P == 0) {
                 // Sample are randomly got from each range.
-                Collections.shuffle(partIDList);
+                ArrayUtility.shuffle(partIDs, random);
             }
-            partList.get(partIDList.get(i % P)).add(list.get(i));
+            partOf[i] = partIDs[i % P];
+            partStart[partOf[i] + 1]++;
         }
-
-        // Finally shuffle each part.
-        // Set up thread pool.
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 1);
-        for (int i = 0; i < P; i++) {
-            final int partID = i;
-            executor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        Collections.shuffle(partList.get(partID));
-                    } catch (Exception ex) {
-                        System.err.println(ex.toString());
-                        ex.printStackTrace();
-                    }
-                }
-            });
+        for (int p = 0; p < P; p++) {
+            partStart[p + 1] += partStart[p];
         }
-        // Shutdown thread pool, wait until shutdown finished.
-        executor.shutdown();
-        while (!executor.isTerminated()) {
+        // Parts one after another, each in index order.
+        int[] permutation = new int[length];
+        int[] next = Arrays.copyOf(partStart, P);
+        for (int i = 0; i < length; i++) {
+            permutation[next[partOf[i]]++] = i;
         }
 
-        // Do not concurrent modify list size, instead, add sequentially.
+        // Finally shuffle each part.
+        long[] partSeeds = new long[P];
         for (int i = 0; i < P; i++) {
-            newList.addAll(partList.get(i));
+            partSeeds[i] = seeds.nextLong();
+        }
+        if ((P == 1) || (length < RANGER_PARALLEL_MIN_SIZE)) {
+            for (int i = 0; i < P; i++) {
+                shuffle(permutation, partStart[i], partStart[i + 1], new XoRoShiRo128PlusRandom(partSeeds[i]));
+            }
+        } else {
+            if (executor == null) {
+                executor = ExecutionService.getCpuPool();
+            }
+            List<Callable<Void>> tasks = new ArrayList<>(P);
+            for (int i = 0; i < P; i++) {
+                final int partID = i;
+                tasks.add(() -> {
+                    shuffle(permutation, partStart[partID], partStart[partID + 1], new XoRoShiRo128PlusRandom(partSeeds[partID]));
+                    return null;
+                });
+            }
+            // Block until all parts are shuffled, then raise the first failure.
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
         }
 
-        return newList;
+        return permutation;
     }
 
     /**
@@ -135,4 +233,39 @@ public class ListUtility {
             list.set(length - i - 1, temp);
         }
     }
+
+    /**
+     * Index permutation of swapList: new position i takes old position permutation[i].
+     *
+     * @param length
+     * @return
+     * @throws Exception
+     */
+    public static int[] swapPermutation(int length) throws Exception {
+        int[] permutation = new int[length];
+        for (int i = 0; i < length; i++) {
+            permutation[i] = length - 1 - i;
+        }
+        return permutation;
+    }
+
+    private static int[] identityPermutation(int length) {
+        int[] permutation = new int[length];
+        for (int i = 0; i < length; i++) {
+            permutation[i] = i;
+        }
+        return permutation;
+    }
+
+    /**
+     * Fisher-Yates shuffle of [from, to), with the same draws as Collections.shuffle of that range.
+     */
+    private static void shuffle(int[] array, int from, int to, Random random) {
+        for (int i = to - from - 1; i > 0; i--) {
+            int j = from + random.nextInt(i + 1);
+            int temp = array[from + i];
+            array[from + i] = array[j];
+            array[j] = temp;
+        }
+    }
 }
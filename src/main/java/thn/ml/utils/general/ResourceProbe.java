@@ -0,0 +1,76 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+/**
+ * Snapshot of CPU and memory resources of this process, from GeneralUtility.probeResources().
+ *
+ * @author THNghiep
+ */
+public class ResourceProbe {
+
+    private final int numCpu;
+    private final double cpuQuota;
+    private final long memoryLimit;
+    private final int numNumaNode;
+    private final int cpuParallelism;
+    private final int ioParallelism;
+    private final long heapBudget;
+
+    ResourceProbe(int numCpu, double cpuQuota, long memoryLimit, int numNumaNode, int cpuParallelism, int ioParallelism, long heapBudget) {
+        this.numCpu = numCpu;
+        this.cpuQuota = cpuQuota;
+        this.memoryLimit = memoryLimit;
+        this.numNumaNode = numNumaNode;
+        this.cpuParallelism = cpuParallelism;
+        this.ioParallelism = ioParallelism;
+        this.heapBudget = heapBudget;
+    }
+
+    public int getNumCpu() {
+        return numCpu;
+    }
+
+    /**
+     * @return CPU quota in CPUs, or -1 if there is none.
+     */
+    public double getCpuQuota() {
+        return cpuQuota;
+    }
+
+    /**
+     * @return memory limit in bytes, or -1 if there is none.
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public int getNumNumaNode() {
+        return numNumaNode;
+    }
+
+    public int getCpuParallelism() {
+        return cpuParallelism;
+    }
+
+    public int getIoParallelism() {
+        return ioParallelism;
+    }
+
+    /**
+     * @return heap budget for caches in bytes.
+     */
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    @Override
+    public String toString() {
+        return "CPUs: " + numCpu + ". CPU quota: " + cpuQuota + ". Memory limit: " + memoryLimit + " bytes"
+                + ". NUMA nodes: " + numNumaNode + ". CPU parallelism: " + cpuParallelism + ". I/O parallelism: " + ioParallelism
+                + ". Heap budget: " + heapBudget + " bytes.";
+    }
+}
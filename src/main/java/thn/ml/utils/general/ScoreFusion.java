@@ -0,0 +1,371 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fuse N weighted score sources into one score map, e.g., CBF cosine, trust, recency and citation scores.
+ * Generalizes HashMapUtility.combineLinearTwoHashMap: with two sources, weights {alpha, 1 - alpha}, COMB_SUM
+ * and no normalization, the result is the same.
+ * Each source is read once into compact arrays, optionally normalized, then added into a primitive score map.
+ * Ref:
+ * 1. Fox and Shaw, Combination of Multiple Searches, TREC-2 1994. (CombSUM, CombMNZ)
+ * 2. Cormack et al., Reciprocal Rank Fusion Outperforms Condorcet and Individual Rank Learning Methods, SIGIR 2009.
+ *
+ * The fusion is immutable, so one instance can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class ScoreFusion {
+
+    /**
+     * How source scores are fused.
+     */
+    public enum Mode {
+        // Weighted sum of scores. A missing key has score 0.
+        COMB_SUM,
+        // Weighted sum of scores, times the number of sources that give the key a non-zero weighted score.
+        // A key whose score is 0 after normalization counts as missing from that source, as in CombMNZ.
+        COMB_MNZ,
+        // Weighted sum of 1 / (k + rank), rank from 1 by score descending. Equal scores share the best rank.
+        RECIPROCAL_RANK
+    }
+
+    /**
+     * How scores of each source are normalized before fusion. Not used by RECIPROCAL_RANK.
+     */
+    public enum Normalization {
+        NONE,
+        // As HashMapUtility.minNormalizeHashMap.
+        MIN_MAX,
+        // As HashMapUtility.zScoreNormalizeHashMap.
+        Z_SCORE,
+        // As HashMapUtility.rankNormalizeHashMap.
+        RANK
+    }
+
+    // Usual k of reciprocal rank fusion.
+    public static final float DEFAULT_RRF_K = 60;
+
+    // Fusions of fewer keys than this are done in one thread.
+    private static final int PARALLEL_MIN_SIZE = 1 << 16;
+
+    private final Mode mode;
+    private final Normalization normalization;
+    private final float rrfK;
+
+    public ScoreFusion(Mode mode, Normalization normalization) throws Exception {
+        this(mode, normalization, DEFAULT_RRF_K);
+    }
+
+    /**
+     * @param mode
+     * @param normalization
+     * @param rrfK k of RECIPROCAL_RANK, damps the weight of top ranks.
+     * @throws Exception
+     */
+    public ScoreFusion(Mode mode, Normalization normalization, float rrfK) throws Exception {
+        if ((mode == null) || (normalization == null)) {
+            throw new Exception("Fusion mode and normalization have to be set.");
+        }
+        if (rrfK < 0) {
+            throw new Exception("Reciprocal rank k cannot be negative.");
+        }
+        this.mode = mode;
+        this.normalization = normalization;
+        this.rrfK = rrfK;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Normalization getNormalization() {
+        return normalization;
+    }
+
+    /**
+     * Fuse sources in the calling thread.
+     *
+     * @param sources score maps, not modified. Null scores are converted to 0.
+     * @param weights weight of each source, null means all 1.
+     * @return
+     * @throws Exception
+     */
+    public <K> ScoreMap<K> fuse(List<? extends Map<K, Float>> sources, float[] weights) throws Exception {
+        checkWeights(sources.size(), weights);
+        Source[] prepared = new Source[sources.size()];
+        int totalSize = 0;
+        for (int s = 0; s < prepared.length; s++) {
+            prepared[s] = prepare(toSource(sources.get(s)), getWeight(weights, s), 1);
+            totalSize += prepared[s].keys.length;
+        }
+        return accumulate(prepared, 0, totalSize);
+    }
+
+    /**
+     * Fuse primitive score maps in the calling thread.
+     *
+     * @param sources not modified.
+     * @param weights weight of each source, null means all 1.
+     * @return
+     * @throws Exception
+     */
+    public <K> ScoreMap<K> fuseScoreMaps(List<ScoreMap<K>> sources, float[] weights) throws Exception {
+        checkWeights(sources.size(), weights);
+        Source[] prepared = new Source[sources.size()];
+        int totalSize = 0;
+        for (int s = 0; s < prepared.length; s++) {
+            prepared[s] = prepare(toSource(sources.get(s)), getWeight(weights, s), 1);
+            totalSize += prepared[s].keys.length;
+        }
+        return accumulate(prepared, 0, totalSize);
+    }
+
+    /**
+     * Fuse sources in parallel, for very large maps.
+     * Sources are prepared in parallel, then keys are split into partitions by hash,
+     * and each partition is accumulated by one task over all sources in source order.
+     * So the score of each key is added in the same order as in fuse(), and the result is the same.
+     *
+     * @param sources score maps, not modified. Null scores are converted to 0.
+     * @param weights weight of each source, null means all 1.
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return
+     * @throws Exception
+     */
+    public <K> ScoreMap<K> fuseParallel(List<? extends Map<K, Float>> sources, float[] weights, ForkJoinPool pool) throws Exception {
+        checkWeights(sources.size(), weights);
+        int totalSize = 0;
+        for (Map<K, Float> source : sources) {
+            totalSize += source.size();
+        }
+        if (totalSize < PARALLEL_MIN_SIZE) {
+            return fuse(sources, weights);
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        // Power of two, a few partitions per thread to balance skewed partitions.
+        int numPartition = Integer.highestOneBit(pool.getParallelism() * 4 - 1) << 1;
+        int expectedSize = totalSize / numPartition;
+        List<ScoreMap<K>> partitions;
+        try {
+            // Parallel stream started inside a pool task runs in that pool.
+            partitions = pool.submit(() -> {
+                Source[] prepared = IntStream.range(0, sources.size()).parallel()
+                        .mapToObj(s -> prepareUnchecked(toSource(sources.get(s)), getWeight(weights, s), numPartition))
+                        .toArray(Source[]::new);
+                return IntStream.range(0, numPartition).parallel()
+                        .mapToObj(p -> this.<K>accumulate(prepared, p, expectedSize))
+                        .collect(Collectors.toList());
+            }).get();
+        } catch (ExecutionException e) {
+            // Fork-join wraps the exception again each time it crosses threads, so search the cause chain.
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof PrepareException) {
+                    throw (Exception) cause.getCause();
+                }
+            }
+            throw e;
+        }
+
+        int numKey = 0;
+        for (ScoreMap<K> partition : partitions) {
+            numKey += partition.size();
+        }
+        ScoreMap<K> fused = new ScoreMap<>(numKey);
+        for (ScoreMap<K> partition : partitions) {
+            partition.forEach(fused::put);
+        }
+        return fused;
+    }
+
+    /**
+     * Keys and contribution of each key of one source, grouped by partition.
+     */
+    private static class Source {
+
+        Object[] keys;
+        float[] values;
+        // Partition p is [partitionStart[p], partitionStart[p + 1]).
+        int[] partitionStart;
+    }
+
+    private static <K> Source toSource(Map<K, Float> map) {
+        Source source = new Source();
+        source.keys = new Object[map.size()];
+        source.values = new float[map.size()];
+        int n = 0;
+        for (Map.Entry<K, Float> entry : map.entrySet()) {
+            Float value = entry.getValue();
+            source.keys[n] = entry.getKey();
+            source.values[n] = (value == null) ? 0 : value;
+            n++;
+        }
+        return source;
+    }
+
+    private static <K> Source toSource(ScoreMap<K> map) {
+        Source source = new Source();
+        source.keys = new Object[map.size()];
+        source.values = new float[map.size()];
+        int n = 0;
+        for (int slot = 0; slot < map.keys.length; slot++) {
+            if (map.keys[slot] != null) {
+                source.keys[n] = map.keys[slot];
+                source.values[n] = map.values[slot];
+                n++;
+            }
+        }
+        return source;
+    }
+
+    private Source prepareUnchecked(Source source, float weight, int numPartition) {
+        try {
+            return prepare(source, weight, numPartition);
+        } catch (Exception e) {
+            throw new PrepareException(e);
+        }
+    }
+
+    /**
+     * Carry checked exception of prepare out of parallel stream.
+     */
+    private static class PrepareException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        PrepareException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Turn scores into weighted contributions, then group keys by partition.
+     */
+    private Source prepare(Source source, float weight, int numPartition) throws Exception {
+        float[] values = source.values;
+        if (mode == Mode.RECIPROCAL_RANK) {
+            toReciprocalRanks(values, weight);
+        } else {
+            switch (normalization) {
+                case MIN_MAX:
+                    ArrayUtility.minNormalizeArray(values);
+                    break;
+                case Z_SCORE:
+                    ArrayUtility.zScoreNormalizeArray(values);
+                    break;
+                case RANK:
+                    ArrayUtility.rankNormalizeArray(values);
+                    break;
+                default:
+                    break;
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = values[i] * weight;
+            }
+        }
+
+        int n = source.keys.length;
+        if (numPartition == 1) {
+            source.partitionStart = new int[]{0, n};
+            return source;
+        }
+        // Counting sort of keys by partition.
+        int[] partitions = new int[n];
+        int[] start = new int[numPartition + 1];
+        for (int i = 0; i < n; i++) {
+            partitions[i] = partitionOf(source.keys[i], numPartition);
+            start[partitions[i] + 1]++;
+        }
+        for (int p = 0; p < numPartition; p++) {
+            start[p + 1] += start[p];
+        }
+        int[] next = Arrays.copyOf(start, numPartition);
+        Object[] groupedKeys = new Object[n];
+        float[] groupedValues = new float[n];
+        for (int i = 0; i < n; i++) {
+            int j = next[partitions[i]]++;
+            groupedKeys[j] = source.keys[i];
+            groupedValues[j] = values[i];
+        }
+        source.keys = groupedKeys;
+        source.values = groupedValues;
+        source.partitionStart = start;
+        return source;
+    }
+
+    /**
+     * Replace scores by weight / (k + rank), rank from 1 by score descending, equal scores share the best rank.
+     */
+    private void toReciprocalRanks(float[] values, float weight) {
+        int n = values.length;
+        long[] sortKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            // Inverted bits: ascending sort is score descending.
+            sortKeys[i] = ((long) ~ArrayUtility.toSortableBits(values[i]) << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        int rank = 0;
+        for (int i = 0; i < n; i++) {
+            if ((i == 0) || ((int) (sortKeys[i] >> 32) != (int) (sortKeys[i - 1] >> 32))) {
+                rank = i + 1;
+            }
+            values[(int) sortKeys[i]] = weight / (rrfK + rank);
+        }
+    }
+
+    /**
+     * Add contributions of one partition of all sources, in source order.
+     */
+    @SuppressWarnings("unchecked")
+    private <K> ScoreMap<K> accumulate(Source[] sources, int partition, int expectedSize) {
+        ScoreMap<K> fused = new ScoreMap<>(expectedSize);
+        ScoreMap<K> counts = (mode == Mode.COMB_MNZ) ? new ScoreMap<>(expectedSize) : null;
+        for (Source source : sources) {
+            int end = source.partitionStart[partition + 1];
+            for (int i = source.partitionStart[partition]; i < end; i++) {
+                fused.add((K) source.keys[i], source.values[i]);
+                if ((counts != null) && (source.values[i] != 0)) {
+                    counts.add((K) source.keys[i], 1);
+                }
+            }
+        }
+        if (counts != null) {
+            for (int slot = 0; slot < fused.keys.length; slot++) {
+                if (fused.keys[slot] != null) {
+                    fused.values[slot] = fused.values[slot] * counts.get(fused.keys[slot]);
+                }
+            }
+        }
+        return fused;
+    }
+
+    private static int partitionOf(Object key, int numPartition) {
+        // High bits of the spread hash, so that keys of one partition still spread over its own table.
+        int h = key.hashCode() * 0x9E3779B9;
+        return h >>> (32 - Integer.numberOfTrailingZeros(numPartition));
+    }
+
+    private static void checkWeights(int numSource, float[] weights) throws Exception {
+        if ((weights != null) && (weights.length != numSource)) {
+            throw new Exception("There has to be one weight per source.");
+        }
+    }
+
+    private static float getWeight(float[] weights, int source) {
+        return (weights == null) ? 1 : weights[source];
+    }
+}
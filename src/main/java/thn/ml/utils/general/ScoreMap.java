@@ -0,0 +1,309 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map from item key to primitive float score, e.g., paper id to score.
+ * Backed by an open addressing table of keys and a float array, so scores are never boxed
+ * and updates do not allocate.
+ * Keys cannot be null. A missing key has score 0, as in HashMapUtility.combineLinearTwoHashMap.
+ *
+ * Combine, normalize and scale work in place: see also HashMapUtility overloads.
+ * Not thread-safe.
+ *
+ * @author THNghiep
+ */
+public class ScoreMap<K> {
+
+    // Null marks empty slot.
+    Object[] keys;
+    float[] values;
+    int size;
+
+    public ScoreMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of keys.
+     */
+    public ScoreMap(int expectedSize) {
+        // Load factor at most 0.5 to keep probe sequences short.
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new Object[capacity];
+        values = new float[capacity];
+    }
+
+    /**
+     * Copy a HashMap of scores. Null scores are converted to 0.
+     *
+     * @param map
+     * @return null if map is null.
+     * @throws Exception if map has a null key.
+     */
+    public static <K> ScoreMap<K> of(Map<K, Float> map) throws Exception {
+        if (map == null) {
+            return null;
+        }
+        ScoreMap<K> scoreMap = new ScoreMap<>(map.size());
+        for (Map.Entry<K, Float> entry : map.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new Exception("ScoreMap does not support null key.");
+            }
+            Float value = entry.getValue();
+            scoreMap.put(entry.getKey(), (value == null) ? 0 : value);
+        }
+        return scoreMap;
+    }
+
+    /**
+     * Copy into a HashMap of boxed scores, for code that still needs it.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public HashMap<K, Float> toHashMap() {
+        HashMap<K, Float> map = new HashMap<>(2 * size, 1f);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                map.put((K) keys[slot], values[slot]);
+            }
+        }
+        return map;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return (key != null) && (keys[findSlot(keys, key)] != null);
+    }
+
+    /**
+     * Score of key.
+     *
+     * @param key
+     * @return 0 if key is missing.
+     */
+    public float get(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int slot = findSlot(keys, key);
+        return (keys[slot] == null) ? 0 : values[slot];
+    }
+
+    /**
+     * Set score of key.
+     *
+     * @param key not null.
+     * @param score
+     */
+    public void put(K key, float score) {
+        int slot = insert(key);
+        values[slot] = score;
+    }
+
+    /**
+     * Add delta to score of key, missing key starts from 0.
+     *
+     * @param key not null.
+     * @param delta
+     */
+    public void add(K key, float delta) {
+        int slot = insert(key);
+        values[slot] += delta;
+    }
+
+    /**
+     * Visit all entries, in table order.
+     *
+     * @param consumer
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super K> consumer) throws Exception {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                consumer.accept((K) keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Receive one entry of a ScoreMap.
+     */
+    public interface EntryConsumer<K> {
+
+        void accept(K key, float score) throws Exception;
+    }
+
+    /**
+     * Linear combine in place: this = alpha * this + (1 - alpha) * other, over the union of keys.
+     * Same result as HashMapUtility.combineLinearTwoHashMap, without building the key union.
+     *
+     * @param other
+     * @param alpha
+     */
+    @SuppressWarnings("unchecked")
+    public void combineLinear(ScoreMap<? extends K> other, float alpha) {
+        if (other == this) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    values[slot] = values[slot] * alpha + values[slot] * (1 - alpha);
+                }
+            }
+            return;
+        }
+        // Scale own scores first, so that keys added from other are not scaled.
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                values[slot] = values[slot] * alpha;
+            }
+        }
+        Object[] otherKeys = other.keys;
+        float[] otherValues = other.values;
+        for (int slot = 0; slot < otherKeys.length; slot++) {
+            if (otherKeys[slot] != null) {
+                int i = insert((K) otherKeys[slot]);
+                values[i] = values[i] + otherValues[slot] * (1 - alpha);
+            }
+        }
+    }
+
+    /**
+     * Keep only keys of filtering, with own score or 0, as HashMapUtility.filterHashMap.
+     *
+     * @param filtering
+     * @return new map.
+     */
+    @SuppressWarnings("unchecked")
+    public ScoreMap<K> filterBy(ScoreMap<? extends K> filtering) {
+        ScoreMap<K> result = new ScoreMap<>(filtering.size);
+        Object[] filteringKeys = filtering.keys;
+        for (int slot = 0; slot < filteringKeys.length; slot++) {
+            if (filteringKeys[slot] != null) {
+                result.put((K) filteringKeys[slot], get(filteringKeys[slot]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Min-max normalize to [0, 1] in place, as HashMapUtility.minNormalizeHashMap.
+     * Min and max are found in one pass, then scores are rewritten in one pass.
+     * All scores are 0.5 if they are equal.
+     */
+    public void minNormalize() {
+        if (size == 0) {
+            return;
+        }
+        float[] minMax = findMinMax();
+        float min = minMax[0];
+        float max = minMax[1];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                values[slot] = (min == max) ? 0.5f : (values[slot] - min) / (max - min);
+            }
+        }
+    }
+
+    /**
+     * Scale from [min, max] to [a, b] in place, as HashMapUtility.scaleToRangeABHashMap.
+     *
+     * @param a
+     * @param b
+     */
+    public void scaleToRange(float a, float b) {
+        if ((size == 0) || (a > b)) {
+            return;
+        }
+        float[] minMax = findMinMax();
+        float min = minMax[0];
+        float max = minMax[1];
+        if ((min == a) && (max == b)) {
+            return;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                values[slot] = (min == max) ? (a + b) / 2 : (values[slot] - min) / (max - min) * (b - a) + a;
+            }
+        }
+    }
+
+    /**
+     * @return {min, max} of scores.
+     */
+    private float[] findMinMax() {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                float value = values[slot];
+                // Float.compare order, as Collections.min and Collections.max of Float.
+                if (Float.compare(value, min) < 0) {
+                    min = value;
+                }
+                if (Float.compare(value, max) > 0) {
+                    max = value;
+                }
+            }
+        }
+        return new float[]{min, max};
+    }
+
+    /**
+     * Find or add slot of key, new key has score 0.
+     */
+    private int insert(K key) {
+        if (key == null) {
+            throw new NullPointerException("ScoreMap does not support null key.");
+        }
+        int slot = findSlot(keys, key);
+        if (keys[slot] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = findSlot(keys, key);
+            }
+            keys[slot] = key;
+            values[slot] = 0;
+            size++;
+        }
+        return slot;
+    }
+
+    private static int findSlot(Object[] keys, Object key) {
+        int mask = keys.length - 1;
+        int h = key.hashCode() * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while ((keys[slot] != null) && (!keys[slot].equals(key))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        Object[] newKeys = new Object[capacity];
+        float[] newValues = new float[capacity];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                int newSlot = findSlot(newKeys, keys[slot]);
+                newKeys[newSlot] = keys[slot];
+                newValues[newSlot] = values[slot];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+/**
+ * Compact list of int ids and their scores in parallel primitive arrays, e.g., a top k result.
+ *
+ * @author THNghiep
+ */
+public class ScoredIds {
+
+    private final int[] ids;
+    private final float[] scores;
+
+    /**
+     * @param ids
+     * @param scores parallel to ids.
+     * @throws Exception
+     */
+    public ScoredIds(int[] ids, float[] scores) throws Exception {
+        if (ids.length != scores.length) {
+            throw new Exception("Ids and scores have to be parallel arrays.");
+        }
+        this.ids = ids;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public float getScore(int i) {
+        return scores[i];
+    }
+
+    /**
+     * @return backing array, do not modify.
+     */
+    public int[] getIds() {
+        return ids;
+    }
+
+    /**
+     * @return backing array, do not modify.
+     */
+    public float[] getScores() {
+        return scores;
+    }
+}
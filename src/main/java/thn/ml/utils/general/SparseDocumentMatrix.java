@@ -0,0 +1,329 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import ir.vsr.HashMapVector;
+import ir.utilities.Weight;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Document vectors, e.g., from MahoutFileUtility.readMahoutVectorFiles, in compressed sparse row (CSR) form:
+ * terms are mapped to int ids, each row keeps its term ids sorted with float weights, and row norms are precomputed.
+ * Cosine of a query against all rows then needs no String hashing, and runs in parallel.
+ *
+ * Rows are ordered by document id, and term ids by term, so the matrix does not depend on HashMap order.
+ * Cosine is clamped to [0, 1] as WeightingUtility.computeCosine. It can differ from computeCosine in the last digits,
+ * since weights are stored as float.
+ * The matrix is immutable, so it can be shared between threads.
+ *
+ * @author THNghiep
+ */
+public class SparseDocumentMatrix {
+
+    // Rows scored by one task.
+    private static final int ROW_BLOCK_SIZE = 1 << 12;
+    // Queries scored by one task, sharing one dense query array.
+    private static final int QUERY_BLOCK_SIZE = 16;
+
+    final String[] rowIds;
+    // Row r is [rowStart[r], rowStart[r + 1]) in termIds and weights.
+    final int[] rowStart;
+    final int[] termIds;
+    final float[] weights;
+    final double[] norms;
+    final HashMap<String, Integer> termIndex;
+
+    private SparseDocumentMatrix(String[] rowIds, int[] rowStart, int[] termIds, float[] weights, double[] norms,
+            HashMap<String, Integer> termIndex) {
+        this.rowIds = rowIds;
+        this.rowStart = rowStart;
+        this.termIds = termIds;
+        this.weights = weights;
+        this.norms = norms;
+        this.termIndex = termIndex;
+    }
+
+    /**
+     * Build matrix of document vectors.
+     *
+     * @param documents document id to vector.
+     * @return
+     * @throws Exception
+     */
+    public static SparseDocumentMatrix of(Map<String, HashMapVector> documents) throws Exception {
+        String[] rowIds = documents.keySet().toArray(new String[documents.size()]);
+        Arrays.sort(rowIds);
+
+        // Term ids in term order.
+        HashMap<String, Integer> termIndex = new HashMap<>();
+        long numEntry = 0;
+        for (HashMapVector vector : documents.values()) {
+            for (String term : vector.hashMap.keySet()) {
+                termIndex.put(term, 0);
+            }
+            numEntry += vector.size();
+        }
+        if (numEntry > Integer.MAX_VALUE) {
+            throw new Exception("Too many non-zero weights for one matrix: " + numEntry);
+        }
+        String[] terms = termIndex.keySet().toArray(new String[termIndex.size()]);
+        Arrays.sort(terms);
+        for (int t = 0; t < terms.length; t++) {
+            termIndex.put(terms[t], t);
+        }
+
+        int[] rowStart = new int[rowIds.length + 1];
+        int[] termIds = new int[(int) numEntry];
+        float[] weights = new float[(int) numEntry];
+        double[] norms = new double[rowIds.length];
+        int n = 0;
+        for (int row = 0; row < rowIds.length; row++) {
+            HashMapVector vector = documents.get(rowIds[row]);
+            int start = n;
+            double sumSquare = 0;
+            for (Map.Entry<String, Weight> entry : vector.entrySet()) {
+                double weight = entry.getValue().getValue();
+                termIds[n] = termIndex.get(entry.getKey());
+                weights[n] = (float) weight;
+                sumSquare += weight * weight;
+                n++;
+            }
+            sortByTermId(termIds, weights, start, n);
+            rowStart[row + 1] = n;
+            norms[row] = Math.sqrt(sumSquare);
+        }
+
+        return new SparseDocumentMatrix(rowIds, rowStart, termIds, weights, norms, termIndex);
+    }
+
+    public int getNumRow() {
+        return rowIds.length;
+    }
+
+    public int getNumTerm() {
+        return termIndex.size();
+    }
+
+    public String getRowId(int row) {
+        return rowIds[row];
+    }
+
+    /**
+     * Cosine of query and one row, clamped as WeightingUtility.computeCosine.
+     *
+     * @param query
+     * @param row
+     * @return
+     * @throws Exception
+     */
+    public double computeCosine(HashMapVector query, int row) throws Exception {
+        Query q = toQuery(query);
+        double[] dense = new double[getNumTerm()];
+        q.scatter(dense);
+        return computeCosine(q, dense, row);
+    }
+
+    /**
+     * Top k rows by cosine to query, best first, ties by document id ascending.
+     * Rows are scored in parallel blocks, each keeping its own top k, then block results are merged.
+     * Only rows with cosine > 0 are returned.
+     *
+     * @param query
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return document id to cosine.
+     * @throws Exception
+     */
+    public LinkedHashMap<String, Double> computeTopKCosine(HashMapVector query, int k, ForkJoinPool pool) throws Exception {
+        if (k <= 0) {
+            return new LinkedHashMap<>();
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+        Query q = toQuery(query);
+        double[] dense = new double[getNumTerm()];
+        q.scatter(dense);
+
+        int numBlock = (getNumRow() + ROW_BLOCK_SIZE - 1) / ROW_BLOCK_SIZE;
+        // Parallel stream started inside a pool task runs in that pool.
+        List<TopKRowHeap> blockTopK = pool.submit(() -> IntStream.range(0, numBlock).parallel()
+                .mapToObj(b -> scanRows(q, dense, b * ROW_BLOCK_SIZE, Math.min(getNumRow(), (b + 1) * ROW_BLOCK_SIZE), k))
+                .collect(Collectors.toList())).get();
+
+        TopKRowHeap topK = new TopKRowHeap(k);
+        for (TopKRowHeap heap : blockTopK) {
+            topK.addAll(heap);
+        }
+        return toResult(topK);
+    }
+
+    /**
+     * Top k rows by cosine to each query, e.g., many user profiles against all papers.
+     * Queries are scored in parallel, each query in one thread.
+     *
+     * @param queries
+     * @param k
+     * @param pool null means ExecutionService.getCpuPool().
+     * @return top k of each query, in query order.
+     * @throws Exception
+     */
+    public List<LinkedHashMap<String, Double>> computeTopKCosine(List<HashMapVector> queries, int k, ForkJoinPool pool) throws Exception {
+        List<LinkedHashMap<String, Double>> results = new ArrayList<>(queries.size());
+        if (k <= 0) {
+            for (int i = 0; i < queries.size(); i++) {
+                results.add(new LinkedHashMap<>());
+            }
+            return results;
+        }
+        if (pool == null) {
+            pool = ExecutionService.getCpuPool();
+        }
+
+        int numBlock = (queries.size() + QUERY_BLOCK_SIZE - 1) / QUERY_BLOCK_SIZE;
+        List<List<LinkedHashMap<String, Double>>> blockResults = pool.submit(() -> IntStream.range(0, numBlock).parallel()
+                .mapToObj(b -> scanQueries(queries, b * QUERY_BLOCK_SIZE, Math.min(queries.size(), (b + 1) * QUERY_BLOCK_SIZE), k))
+                .collect(Collectors.toList())).get();
+        for (List<LinkedHashMap<String, Double>> blockResult : blockResults) {
+            results.addAll(blockResult);
+        }
+        return results;
+    }
+
+    /**
+     * Query weights of terms known to the matrix, by term id ascending.
+     * Norm counts all query terms, as HashMapVector.length.
+     */
+    static class Query {
+
+        int[] termIds;
+        double[] weights;
+        double norm;
+
+        void scatter(double[] dense) {
+            for (int i = 0; i < termIds.length; i++) {
+                dense[termIds[i]] = weights[i];
+            }
+        }
+
+        void clear(double[] dense) {
+            for (int termId : termIds) {
+                dense[termId] = 0;
+            }
+        }
+    }
+
+    Query toQuery(HashMapVector vector) {
+        int[] ids = new int[vector.size()];
+        double[] ws = new double[vector.size()];
+        int n = 0;
+        double sumSquare = 0;
+        for (Map.Entry<String, Weight> entry : vector.entrySet()) {
+            double weight = entry.getValue().getValue();
+            sumSquare += weight * weight;
+            Integer termId = termIndex.get(entry.getKey());
+            if (termId != null) {
+                ids[n] = termId;
+                ws[n] = weight;
+                n++;
+            }
+        }
+        // Sort by term id, through packed keys.
+        long[] sortKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortKeys[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        Query query = new Query();
+        query.termIds = new int[n];
+        query.weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            int j = (int) sortKeys[i];
+            query.termIds[i] = ids[j];
+            query.weights[i] = ws[j];
+        }
+        query.norm = Math.sqrt(sumSquare);
+        return query;
+    }
+
+    /**
+     * Cosine from dot product, clamped as WeightingUtility.computeCosine.
+     */
+    double toCosine(Query query, double dot, int row) {
+        return NumericUtility.normalizeValue(dot / (query.norm * norms[row]));
+    }
+
+    private double computeCosine(Query query, double[] dense, int row) {
+        // Sum in term id order.
+        double dot = 0;
+        int end = rowStart[row + 1];
+        for (int j = rowStart[row]; j < end; j++) {
+            dot += weights[j] * dense[termIds[j]];
+        }
+        return toCosine(query, dot, row);
+    }
+
+    private TopKRowHeap scanRows(Query query, double[] dense, int from, int to, int k) {
+        TopKRowHeap heap = new TopKRowHeap(k);
+        for (int row = from; row < to; row++) {
+            double cosine = computeCosine(query, dense, row);
+            if (cosine > 0) {
+                heap.offer(row, cosine);
+            }
+        }
+        return heap;
+    }
+
+    private List<LinkedHashMap<String, Double>> scanQueries(List<HashMapVector> queries, int from, int to, int k) {
+        List<LinkedHashMap<String, Double>> results = new ArrayList<>(to - from);
+        double[] dense = new double[getNumTerm()];
+        for (int i = from; i < to; i++) {
+            Query query = toQuery(queries.get(i));
+            query.scatter(dense);
+            results.add(toResult(scanRows(query, dense, 0, getNumRow(), k)));
+            query.clear(dense);
+        }
+        return results;
+    }
+
+    LinkedHashMap<String, Double> toResult(TopKRowHeap heap) {
+        int[] rows = new int[heap.size()];
+        double[] scores = new double[heap.size()];
+        int n = heap.drain(rows, scores);
+        LinkedHashMap<String, Double> result = new LinkedHashMap<>(2 * n, 1f);
+        for (int i = 0; i < n; i++) {
+            result.put(rowIds[rows[i]], scores[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Sort one row by term id, through packed keys.
+     */
+    private static void sortByTermId(int[] termIds, float[] weights, int from, int to) {
+        int n = to - from;
+        long[] sortKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortKeys[i] = ((long) termIds[from + i] << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        float[] sortedWeights = new float[n];
+        for (int i = 0; i < n; i++) {
+            int j = (int) sortKeys[i];
+            termIds[from + i] = (int) (sortKeys[i] >>> 32);
+            sortedWeights[i] = weights[from + j];
+        }
+        System.arraycopy(sortedWeights, 0, weights, from, n);
+    }
+}
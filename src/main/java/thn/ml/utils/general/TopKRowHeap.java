@@ -0,0 +1,130 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+/**
+ * Bounded min-heap of the k best (row, score) pairs, in primitive arrays.
+ * Better means higher score, then lower row, so the kept set does not depend on insertion order.
+ *
+ * @author THNghiep
+ */
+class TopKRowHeap {
+
+    private final int[] rows;
+    private final double[] scores;
+    private int size;
+
+    /**
+     * @param k at least 1.
+     */
+    TopKRowHeap(int k) {
+        rows = new int[k];
+        scores = new double[k];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == rows.length;
+    }
+
+    /**
+     * Score of the worst kept pair, negative infinity when not full:
+     * a new pair has to beat it to enter the heap.
+     *
+     * @return
+     */
+    double threshold() {
+        return isFull() ? scores[0] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Keep pair if the heap is not full or it is better than the worst kept.
+     *
+     * @param row
+     * @param score
+     */
+    void offer(int row, double score) {
+        if (size < rows.length) {
+            int i = size++;
+            // Sift up.
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!isWorse(row, score, rows[parent], scores[parent])) {
+                    break;
+                }
+                rows[i] = rows[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            rows[i] = row;
+            scores[i] = score;
+        } else if (isWorse(rows[0], scores[0], row, score)) {
+            siftDown(row, score, size);
+        }
+    }
+
+    void addAll(TopKRowHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.rows[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Empty the heap into arrays, best first.
+     *
+     * @param rowsOut length at least size().
+     * @param scoresOut length at least size().
+     * @return number of pairs.
+     */
+    int drain(int[] rowsOut, double[] scoresOut) {
+        int n = size;
+        // Remove worst first, fill from the end.
+        for (int i = n - 1; i >= 0; i--) {
+            rowsOut[i] = rows[0];
+            scoresOut[i] = scores[0];
+            size = i;
+            if (i > 0) {
+                siftDown(rows[i], scores[i], i);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Put pair at the head, then sift it down within the first n slots.
+     */
+    private void siftDown(int row, double score, int n) {
+        int i = 0;
+        int half = n >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if ((right < n) && isWorse(rows[right], scores[right], rows[child], scores[child])) {
+                child = right;
+            }
+            if (!isWorse(rows[child], scores[child], row, score)) {
+                break;
+            }
+            rows[i] = rows[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        rows[i] = row;
+        scores[i] = score;
+    }
+
+    // Whether pair a ranks below pair b.
+    private static boolean isWorse(int rowA, double scoreA, int rowB, double scoreB) {
+        int c = Double.compare(scoreA, scoreB);
+        if (c != 0) {
+            return c < 0;
+        }
+        return rowA > rowB;
+    }
+}
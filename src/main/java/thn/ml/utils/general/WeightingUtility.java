@@ -5,6 +5,9 @@
 package thn.research.textutility.general;
 
 import ir.vsr.HashMapVector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
 
 /**
  *
@@ -12,6 +15,11 @@ import ir.vsr.HashMapVector;
  */
 public class WeightingUtility {
 
+    // Year gaps up to this are looked up in a table, larger gaps are computed directly.
+    private static final int MAX_TABLE_GAP = 1 << 12;
+    // Arrays shorter than this are weighted in one thread.
+    private static final int PARALLEL_MIN_SIZE = 1 << 16;
+
     /**
      * Compute cosine angle of two vector. Use HashMapVector from ir package as
      * vector datatype: need to examine how to use correctly.
@@ -67,4 +75,174 @@ public class WeightingUtility {
         }
         return ff;
     }
+
+    /**
+     * RPY of one paper against many papers: factors[i] = computeRPY(y1, years[i], c).
+     * Year gaps are small integers, so each distinct gap is computed once into a table.
+     *
+     * @param y1 publication year
+     * @param years publication years
+     * @param c a constant, e.g., 0.9
+     * @return RPY of each year.
+     * @throws Exception
+     */
+    public static double[] computeRPY(int y1, int[] years, double c) throws Exception {
+        return computeFactors(y1, years, gap -> 1 / (gap + c));
+    }
+
+    /**
+     * Forgetting factor of many papers: factors[i] = computeForgettingFactor(y1, years[i], gamma).
+     * Each distinct year gap calls Math.exp once, through a table.
+     *
+     * @param y1 latest publication time
+     * @param years considering publication times
+     * @param gamma forgetting coefficient.
+     * @return forgetting factor of each year.
+     * @throws Exception
+     */
+    public static double[] computeForgettingFactor(int y1, int[] years, double gamma) throws Exception {
+        return computeFactors(y1, years, gap -> 1 / Math.exp(gamma * gap));
+    }
+
+    /**
+     * Multiply candidate scores by RPY in place: scores[i] *= computeRPY(y1, years[i], c).
+     *
+     * @param y1 publication year
+     * @param years publication year of each candidate
+     * @param scores score of each candidate, parallel to years.
+     * @param c a constant, e.g., 0.9
+     * @throws Exception
+     */
+    public static void applyRPY(int y1, int[] years, float[] scores, double c) throws Exception {
+        applyFactors(y1, years, scores, gap -> 1 / (gap + c), null);
+    }
+
+    /**
+     * Parallel applyRPY for very large candidate arrays. Same result as the sequential version.
+     *
+     * @param y1
+     * @param years
+     * @param scores
+     * @param c
+     * @param pool null means ExecutionService.getCpuPool().
+     * @throws Exception
+     */
+    public static void applyRPYParallel(int y1, int[] years, float[] scores, double c, ForkJoinPool pool) throws Exception {
+        applyFactors(y1, years, scores, gap -> 1 / (gap + c), (pool == null) ? ExecutionService.getCpuPool() : pool);
+    }
+
+    /**
+     * Multiply candidate scores by forgetting factor in place: scores[i] *= computeForgettingFactor(y1, years[i], gamma).
+     *
+     * @param y1 latest publication time
+     * @param years publication time of each candidate
+     * @param scores score of each candidate, parallel to years.
+     * @param gamma forgetting coefficient.
+     * @throws Exception
+     */
+    public static void applyForgettingFactor(int y1, int[] years, float[] scores, double gamma) throws Exception {
+        applyFactors(y1, years, scores, gap -> 1 / Math.exp(gamma * gap), null);
+    }
+
+    /**
+     * Parallel applyForgettingFactor for very large candidate arrays. Same result as the sequential version.
+     *
+     * @param y1
+     * @param years
+     * @param scores
+     * @param gamma
+     * @param pool null means ExecutionService.getCpuPool().
+     * @throws Exception
+     */
+    public static void applyForgettingFactorParallel(int y1, int[] years, float[] scores, double gamma, ForkJoinPool pool) throws Exception {
+        applyFactors(y1, years, scores, gap -> 1 / Math.exp(gamma * gap), (pool == null) ? ExecutionService.getCpuPool() : pool);
+    }
+
+    private static double[] computeFactors(int y1, int[] years, IntToDoubleFunction factorOfGap) {
+        double[] table = buildGapTable(y1, maxGap(y1, years), factorOfGap);
+        double[] factors = new double[years.length];
+        for (int i = 0; i < years.length; i++) {
+            factors[i] = factorOf(y1, years[i], table, factorOfGap);
+        }
+        return factors;
+    }
+
+    /**
+     * @param pool null means in the calling thread.
+     */
+    private static void applyFactors(int y1, int[] years, float[] scores, IntToDoubleFunction factorOfGap,
+            ForkJoinPool pool) throws Exception {
+        if (years.length != scores.length) {
+            throw new Exception("Years and scores have to be parallel arrays.");
+        }
+        if ((pool == null) || (years.length < PARALLEL_MIN_SIZE)) {
+            double[] table = buildGapTable(y1, maxGap(y1, years), factorOfGap);
+            for (int i = 0; i < years.length; i++) {
+                scores[i] = (float) (scores[i] * factorOf(y1, years[i], table, factorOfGap));
+            }
+            return;
+        }
+        // Parallel stream started inside a pool task runs in that pool. Each element is written once.
+        pool.submit(() -> {
+            double[] table = buildGapTable(y1, maxGapParallel(y1, years), factorOfGap);
+            IntStream.range(0, years.length).parallel()
+                    .forEach(i -> scores[i] = (float) (scores[i] * factorOf(y1, years[i], table, factorOfGap)));
+        }).get();
+    }
+
+    /**
+     * Largest gap between y1 and a valid year, 0 if y1 is invalid, as the table is not used then.
+     */
+    private static long maxGap(int y1, int[] years) {
+        if (y1 == -1) {
+            return 0;
+        }
+        long maxGap = 0;
+        for (int y2 : years) {
+            if (y2 != -1) {
+                maxGap = Math.max(maxGap, Math.abs((long) y1 - y2));
+            }
+        }
+        return maxGap;
+    }
+
+    /**
+     * Same as maxGap, by a parallel max reduction. Called inside a pool task, so it runs in that pool.
+     */
+    private static long maxGapParallel(int y1, int[] years) {
+        if (y1 == -1) {
+            return 0;
+        }
+        return IntStream.of(years).parallel()
+                .filter(y2 -> y2 != -1)
+                .mapToLong(y2 -> Math.abs((long) y1 - y2))
+                .max().orElse(0);
+    }
+
+    /**
+     * Factor of each year gap from 0 to the largest gap.
+     *
+     * @return null if y1 is invalid or the largest gap is too large for a table.
+     */
+    private static double[] buildGapTable(int y1, long maxGap, IntToDoubleFunction factorOfGap) {
+        if ((y1 == -1) || (maxGap > MAX_TABLE_GAP)) {
+            return null;
+        }
+        double[] table = new double[(int) maxGap + 1];
+        for (int gap = 0; gap < table.length; gap++) {
+            table[gap] = factorOfGap.applyAsDouble(gap);
+        }
+        return table;
+    }
+
+    /**
+     * Same value as computeRPY and computeForgettingFactor: 0.5 when a year is invalid.
+     */
+    private static double factorOf(int y1, int y2, double[] table, IntToDoubleFunction factorOfGap) {
+        if ((y1 == -1) || (y2 == -1)) {
+            return 0.5;
+        }
+        int gap = Math.abs(y1 - y2);
+        return (table != null) ? table[gap] : factorOfGap.applyAsDouble(gap);
+    }
 }
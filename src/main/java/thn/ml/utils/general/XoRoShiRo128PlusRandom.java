@@ -0,0 +1,103 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.Random;
+
+/**
+ * Fast seeded random generator xoroshiro128+, as a java.util.Random, e.g., for ArrayUtility shuffles.
+ * Much faster than Random, which updates an AtomicLong on every call, with better statistical quality.
+ * Ref: Blackman and Vigna, Scrambled Linear Pseudorandom Number Generators, 2018. http://prng.di.unimi.it/
+ *
+ * Not thread-safe: use one instance per thread.
+ *
+ * @author THNghiep
+ */
+public class XoRoShiRo128PlusRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    // No field initializers: Random constructor calls setSeed before they would run.
+    private long s0;
+    private long s1;
+    // Second Gaussian of the last polar method draw, kept here since Random does not clear its own on setSeed.
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    public XoRoShiRo128PlusRandom() {
+        this(System.nanoTime());
+    }
+
+    public XoRoShiRo128PlusRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Reset state from seed, expanded by SplitMix64 so that close seeds give unrelated sequences.
+     *
+     * @param seed
+     */
+    @Override
+    public void setSeed(long seed) {
+        long x = seed;
+        s0 = splitMix64(x += 0x9E3779B97F4A7C15L);
+        s1 = splitMix64(x + 0x9E3779B97F4A7C15L);
+        if ((s0 == 0) && (s1 == 0)) {
+            s1 = 1;
+        }
+        haveNextNextGaussian = false;
+    }
+
+    @Override
+    public long nextLong() {
+        long a = s0;
+        long b = s1;
+        long result = a + b;
+        b ^= a;
+        s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+        s1 = Long.rotateLeft(b, 37);
+        return result;
+    }
+
+    /**
+     * Random bits from the high bits of nextLong, the best bits of xoroshiro128+.
+     * All other Random methods are built on it.
+     */
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Gaussian by the polar method, as Random.nextGaussian, but with a cache that setSeed clears,
+     * so the same seed always gives the same sequence.
+     */
+    @Override
+    public double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while ((s >= 1) || (s == 0));
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+    private static long splitMix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
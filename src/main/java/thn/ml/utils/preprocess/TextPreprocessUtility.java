@@ -21,10 +21,8 @@ import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import org.apache.commons.io.FileUtils;
-import thn.research.textutility.general.GeneralUtility;
+import thn.research.textutility.general.ExecutionService;
 import thn.research.textutility.io.FileUtility;
 import weka.core.Stopwords;
 import weka.core.stemmers.IteratedLovinsStemmer;
@@ -126,7 +124,8 @@ public class TextPreprocessUtility {
      */
     public static void parallelPreprocess(String rootPathInput, String rootPathOutput, List<String> extensions, boolean overwrite,
             final String heading, final boolean isCleanToken, final boolean isLower, final boolean isNoStop, final boolean isStem, final boolean isLemma) throws Exception {
-        ExecutorService executor = Executors.newFixedThreadPool(GeneralUtility.getNumOfCore() - 1);
+        // Files are preprocessed on the shared CPU pool.
+        ExecutionService.TaskGroup tasks = new ExecutionService.TaskGroup(ExecutionService.getCpuPool());
 
         File rootOutput = new File(rootPathOutput);
         if (rootOutput.exists()) {
@@ -142,7 +141,7 @@ public class TextPreprocessUtility {
         for (int i = 0; i < listFilePaths.size(); i++) {
             final String filePathInput = listFilePaths.get(i);
             final String filePathOutput = filePathInput.replace(rootPathInput, rootPathOutput);
-            executor.submit(() -> {
+            tasks.execute(() -> {
                 try {
                     preprocess(filePathInput, filePathOutput, heading, isCleanToken, isLower, isNoStop, isStem, isLemma);
                 } catch (Exception ex) {
@@ -151,9 +150,7 @@ public class TextPreprocessUtility {
             });
         }
 
-        executor.shutdown();
-        while (!executor.isTerminated()) {
-        }
+        tasks.await();
     }
 
     /**
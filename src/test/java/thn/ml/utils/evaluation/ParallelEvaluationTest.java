@@ -0,0 +1,141 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Parallel mean metrics have to match the sequential ones, and be the same for any pool.
+ *
+ * @author THNghiep
+ */
+public class ParallelEvaluationTest {
+
+    private static final int NUM_QUERY = 5 * ParallelEvaluation.CHUNK_SIZE + 17;
+    private static final int CATALOG_SIZE = 500;
+    private static final int K = 10;
+
+    @Test
+    public void parallelEqualsSequential() throws Exception {
+        Random random = new Random(42);
+        List<List> input = randomRankLists(random);
+        List<List> groundTruth = new ArrayList<>();
+        for (int i = 0; i < NUM_QUERY; i++) {
+            groundTruth.add(randomList(random, 1 + random.nextInt(20)));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(NDCG.computeMeanNDCGAtK(input, groundTruth, K),
+                    NDCG.computeMeanNDCGAtKParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(AveragePrecision.computeMAPAtK(input, groundTruth, K),
+                    AveragePrecision.computeMAPAtKParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(ReciprocalRank.computeMRR(input, groundTruth),
+                    ReciprocalRank.computeMRRParallel(input, groundTruth, pool), 1e-12);
+            assertEquals(Precision.computeMeanPrecisionAtK(input, groundTruth, K),
+                    Precision.computeMeanPrecisionAtKParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(Recall.computeMeanRecallAtK(input, groundTruth, K),
+                    Recall.computeMeanRecallAtKParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(FMeasure.computeMeanFMeasureAtK(input, groundTruth, 1, K),
+                    FMeasure.computeMeanFMeasureAtKParallel(input, groundTruth, 1, K, pool), 1e-12);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sharedGroundTruthParallelEqualsSequential() throws Exception {
+        Random random = new Random(7);
+        List<List> input = randomRankLists(random);
+        List groundTruth = randomList(random, 50);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(NDCG.computeMeanNDCGAtKSharedGroundTruth(input, groundTruth, K),
+                    NDCG.computeMeanNDCGAtKSharedGroundTruthParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(AveragePrecision.computeMAPAtKSharedGroundTruth(input, groundTruth, K),
+                    AveragePrecision.computeMAPAtKSharedGroundTruthParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(ReciprocalRank.computeMRRSharedGroundTruth(input, groundTruth),
+                    ReciprocalRank.computeMRRSharedGroundTruthParallel(input, groundTruth, pool), 1e-12);
+            assertEquals(Precision.computeMeanPrecisionAtKSharedGroundTruth(input, groundTruth, K),
+                    Precision.computeMeanPrecisionAtKSharedGroundTruthParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(Recall.computeMeanRecallAtKSharedGroundTruth(input, groundTruth, K),
+                    Recall.computeMeanRecallAtKSharedGroundTruthParallel(input, groundTruth, K, pool), 1e-12);
+            assertEquals(FMeasure.computeMeanFMeasureAtKSharedGroundTruth(input, groundTruth, 1, K),
+                    FMeasure.computeMeanFMeasureAtKSharedGroundTruthParallel(input, groundTruth, 1, K, pool), 1e-12);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sameResultForAnyPool() throws Exception {
+        Random random = new Random(3);
+        List<List> input = randomRankLists(random);
+        List groundTruth = randomList(random, 50);
+        double expected = NDCG.computeMeanNDCGAtKSharedGroundTruthParallel(input, groundTruth, K, null);
+        for (int parallelism : new int[]{1, 2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                assertEquals(expected, NDCG.computeMeanNDCGAtKSharedGroundTruthParallel(input, groundTruth, K, pool), 0.0);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void emptyRankListsAreSkipped() throws Exception {
+        List<List> input = new ArrayList<>();
+        input.add(Collections.singletonList(1));
+        input.add(null);
+        input.add(Collections.emptyList());
+        input.add(Collections.singletonList(2));
+        assertEquals(0.5, ParallelEvaluation.computeMean(input, i -> ((Integer) input.get(i).get(0) == 1) ? 1 : 0, null), 0.0);
+        assertEquals(0.0, ParallelEvaluation.computeMean(Collections.singletonList(null), i -> 1, null), 0.0);
+    }
+
+    @Test
+    public void scorerExceptionIsRethrown() throws Exception {
+        List<List> input = new ArrayList<>();
+        for (int i = 0; i < NUM_QUERY; i++) {
+            input.add(Collections.singletonList(i));
+        }
+        try {
+            ParallelEvaluation.computeMean(input, i -> {
+                if (i == NUM_QUERY - 1) {
+                    throw new Exception("Bad query " + i);
+                }
+                return 1;
+            }, null);
+            fail("Scorer exception was not rethrown.");
+        } catch (Exception e) {
+            assertEquals("Bad query " + (NUM_QUERY - 1), e.getMessage());
+        }
+    }
+
+    private static List<List> randomRankLists(Random random) {
+        List<List> input = new ArrayList<>();
+        for (int i = 0; i < NUM_QUERY; i++) {
+            // Some empty rank lists, which are not counted in the mean.
+            input.add((i % 100 == 0) ? new ArrayList<>() : randomList(random, 1 + random.nextInt(2 * K)));
+        }
+        return input;
+    }
+
+    private static List randomList(Random random, int size) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(CATALOG_SIZE));
+        }
+        return list;
+    }
+}
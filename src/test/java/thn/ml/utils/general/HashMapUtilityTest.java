@@ -0,0 +1,153 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Sorted maps have to keep the order of the former LinkedList sort, ties included,
+ * and top k has to be the first k of the full sort, ties by key.
+ *
+ * @author THNghiep
+ */
+public class HashMapUtilityTest {
+
+    // Above the size where sorts and top k run in parallel.
+    private static final int LARGE_SIZE = 100000;
+
+    @Test
+    public void sortedMapMatchesBaseline() throws Exception {
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 10, 1000, LARGE_SIZE}) {
+            HashMap<String, Float> map = randomMap(random, size);
+            assertSameEntries(baselineSortedMap(map, false), HashMapUtility.getSortedMapAscending(map));
+            assertSameEntries(baselineSortedMap(map, true), HashMapUtility.getSortedMapDescending(map));
+        }
+    }
+
+    @Test
+    public void sortedMapOfOtherValuesMatchesBaseline() throws Exception {
+        Random random = new Random(7);
+        HashMap<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("k" + i, random.nextInt(50));
+        }
+        assertSameEntries(baselineSortedMap(map, false), HashMapUtility.getSortedMapAscending(map));
+        assertSameEntries(baselineSortedMap(map, true), HashMapUtility.getSortedMapDescending(map));
+    }
+
+    @Test
+    public void topKIsPrefixOfFullSort() throws Exception {
+        Random random = new Random(3);
+        for (int size : new int[]{0, 1, 10, 1000, LARGE_SIZE}) {
+            HashMap<String, Float> map = randomMap(random, size);
+            List<Float> sortedScores = new ArrayList<>(baselineSortedMap(map, true).values());
+            List<String> expected = sortByScoreThenKey(map);
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                for (int k : new int[]{1, 10, 100, size + 1}) {
+                    List<String> topK = HashMapUtility.getTopKKeysDescending(map, k);
+                    assertEquals(expected.subList(0, Math.min(k, size)), topK);
+                    for (int i = 0; i < topK.size(); i++) {
+                        assertEquals(sortedScores.get(i), map.get(topK.get(i)));
+                    }
+                    assertEquals(topK, new ArrayList<>(HashMapUtility.getTopKDescending(map, k).keySet()));
+                    assertEquals(topK, HashMapUtility.getTopKKeysDescendingParallel(map, k, pool));
+                    assertEquals(topK, new ArrayList<>(HashMapUtility.getTopKDescending(ScoreMap.of(map), k).keySet()));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void intTopKMatchesMapTopK() throws Exception {
+        Random random = new Random(5);
+        HashMap<Integer, Float> map = new HashMap<>();
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            map.put(random.nextInt(10 * LARGE_SIZE), (float) random.nextInt(1000));
+        }
+        IntScoreMap intMap = IntScoreMap.of(map);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int k : new int[]{1, 10, 1000}) {
+                List<Integer> expected = HashMapUtility.getTopKKeysDescending(map, k);
+                ScoredIds topK = HashMapUtility.getTopKDescending(intMap, k);
+                assertEquals(expected.size(), topK.size());
+                for (int i = 0; i < topK.size(); i++) {
+                    assertEquals(expected.get(i).intValue(), topK.getId(i));
+                    assertEquals(map.get(expected.get(i)), topK.getScore(i), 0);
+                }
+                ScoredIds parallelTopK = HashMapUtility.getTopKDescendingParallel(intMap, k, pool);
+                assertArrayEquals(topK.getIds(), parallelTopK.getIds());
+                assertArrayEquals(topK.getScores(), parallelTopK.getScores(), 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Former getSortedMapAscending / getSortedMapDescending: stable sort of a LinkedList of entries.
+     */
+    @SuppressWarnings("unchecked")
+    private static LinkedHashMap baselineSortedMap(HashMap map, boolean descending) {
+        List list = new LinkedList(map.entrySet());
+        if (descending) {
+            Collections.sort(list, (Object o1, Object o2) -> ((Comparable) ((Map.Entry) (o2)).getValue())
+                    .compareTo(((Map.Entry) (o1)).getValue()));
+        } else {
+            Collections.sort(list, (Object o1, Object o2) -> ((Comparable) ((Map.Entry) (o1)).getValue())
+                    .compareTo(((Map.Entry) (o2)).getValue()));
+        }
+
+        LinkedHashMap result = new LinkedHashMap();
+        for (Iterator it = list.iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static List<String> sortByScoreThenKey(HashMap<String, Float> map) {
+        List<String> keys = new ArrayList<>(map.keySet());
+        keys.sort((k1, k2) -> {
+            int c = Float.compare(map.get(k2), map.get(k1));
+            return (c != 0) ? c : k1.compareTo(k2);
+        });
+        return keys;
+    }
+
+    /**
+     * Many ties, and the special values whose order differs between == and Float.compare.
+     */
+    private static HashMap<String, Float> randomMap(Random random, int size) {
+        HashMap<String, Float> map = new HashMap<>();
+        float[] special = {0.0f, -0.0f, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = 0; i < size; i++) {
+            float score = (random.nextInt(20) == 0) ? special[random.nextInt(special.length)] : random.nextInt(100) / 10f - 5;
+            map.put("k" + i, score);
+        }
+        return map;
+    }
+
+    private static void assertSameEntries(LinkedHashMap expected, LinkedHashMap actual) {
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+    }
+}
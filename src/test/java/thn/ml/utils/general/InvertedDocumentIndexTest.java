@@ -0,0 +1,124 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import ir.vsr.HashMapVector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * WAND search of the inverted index has to return the same top k as brute force over the matrix,
+ * ids and cosines bit for bit.
+ *
+ * @author THNghiep
+ */
+public class InvertedDocumentIndexTest {
+
+    private static final int NUM_DOCUMENT = 3000;
+    private static final int NUM_TERM = 400;
+    private static final int NUM_QUERY = 200;
+
+    @Test
+    public void topKEqualsBruteForce() throws Exception {
+        Random random = new Random(42);
+        SparseDocumentMatrix matrix = SparseDocumentMatrix.of(randomDocuments(random));
+        InvertedDocumentIndex index = InvertedDocumentIndex.of(matrix);
+        List<HashMapVector> queries = randomQueries(random);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int k : new int[]{1, 10, 100, NUM_DOCUMENT + 1}) {
+                List<LinkedHashMap<String, Double>> expected = matrix.computeTopKCosine(queries, k, pool);
+                List<LinkedHashMap<String, Double>> actual = index.computeTopKCosine(queries, k, pool);
+                for (int q = 0; q < queries.size(); q++) {
+                    assertSameEntries(expected.get(q), actual.get(q));
+                    assertSameEntries(expected.get(q), index.computeTopKCosine(queries.get(q), k));
+                    assertSameEntries(expected.get(q), matrix.computeTopKCosine(queries.get(q), k, pool));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void bruteForceEqualsSortedCosines() throws Exception {
+        Random random = new Random(7);
+        SparseDocumentMatrix matrix = SparseDocumentMatrix.of(randomDocuments(random));
+        int k = 20;
+        for (HashMapVector query : randomQueries(random).subList(0, 20)) {
+            List<Integer> rows = new ArrayList<>();
+            double[] cosines = new double[matrix.getNumRow()];
+            for (int row = 0; row < matrix.getNumRow(); row++) {
+                cosines[row] = matrix.computeCosine(query, row);
+                if (cosines[row] > 0) {
+                    rows.add(row);
+                }
+            }
+            rows.sort((r1, r2) -> {
+                int c = Double.compare(cosines[r2], cosines[r1]);
+                return (c != 0) ? c : matrix.getRowId(r1).compareTo(matrix.getRowId(r2));
+            });
+            LinkedHashMap<String, Double> expected = new LinkedHashMap<>();
+            for (int row : rows.subList(0, Math.min(k, rows.size()))) {
+                expected.put(matrix.getRowId(row), cosines[row]);
+            }
+            assertSameEntries(expected, matrix.computeTopKCosine(query, k, null));
+        }
+    }
+
+    /**
+     * Small integer weights, some negative, and duplicated documents, so that many cosines tie.
+     */
+    private static Map<String, HashMapVector> randomDocuments(Random random) {
+        Map<String, HashMapVector> documents = new HashMap<>();
+        HashMapVector previous = null;
+        for (int d = 0; d < NUM_DOCUMENT; d++) {
+            HashMapVector document;
+            if ((previous != null) && (random.nextInt(10) == 0)) {
+                document = previous.copy();
+            } else {
+                document = new HashMapVector();
+                int numTerm = 1 + random.nextInt(30);
+                for (int i = 0; i < numTerm; i++) {
+                    // Zipf-like term frequency: a few terms have long postings.
+                    int term = (int) (NUM_TERM * Math.pow(random.nextDouble(), 3));
+                    document.increment("t" + term, (random.nextInt(8) == 0) ? -1 : 1 + random.nextInt(3));
+                }
+            }
+            documents.put(String.format("d%05d", d), document);
+            previous = document;
+        }
+        return documents;
+    }
+
+    /**
+     * Queries of 1 to 10 terms, including terms unknown to the matrix and one empty query.
+     */
+    private static List<HashMapVector> randomQueries(Random random) {
+        List<HashMapVector> queries = new ArrayList<>();
+        queries.add(new HashMapVector());
+        while (queries.size() < NUM_QUERY) {
+            HashMapVector query = new HashMapVector();
+            int numTerm = 1 + random.nextInt(10);
+            for (int i = 0; i < numTerm; i++) {
+                query.increment("t" + random.nextInt(NUM_TERM + 20), 1 + random.nextInt(2));
+            }
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    private static void assertSameEntries(LinkedHashMap<String, Double> expected, LinkedHashMap<String, Double> actual) {
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Parallel fusion has to give the same scores as sequential fusion, for every mode and normalization.
+ *
+ * @author THNghiep
+ */
+public class ScoreFusionTest {
+
+    // Total size above the one where fusion runs in parallel.
+    private static final int SOURCE_SIZE = 40000;
+    private static final int NUM_SOURCE = 3;
+
+    @Test
+    public void parallelEqualsSequential() throws Exception {
+        Random random = new Random(42);
+        List<HashMap<String, Float>> sources = new ArrayList<>();
+        for (int s = 0; s < NUM_SOURCE; s++) {
+            sources.add(randomSource(random, SOURCE_SIZE, 2 * SOURCE_SIZE));
+        }
+        float[] weights = {0.5f, 0.3f, 0.2f};
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (ScoreFusion.Mode mode : ScoreFusion.Mode.values()) {
+                    for (ScoreFusion.Normalization normalization : ScoreFusion.Normalization.values()) {
+                        ScoreFusion fusion = new ScoreFusion(mode, normalization);
+                        HashMap<String, Float> expected = fusion.fuse(sources, weights).toHashMap();
+                        assertEquals(mode + " " + normalization, expected, fusion.fuseParallel(sources, weights, pool).toHashMap());
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void scoreMapsEqualMaps() throws Exception {
+        Random random = new Random(7);
+        List<HashMap<String, Float>> sources = new ArrayList<>();
+        List<ScoreMap<String>> scoreMaps = new ArrayList<>();
+        for (int s = 0; s < NUM_SOURCE; s++) {
+            sources.add(randomSource(random, 1000, 2000));
+            scoreMaps.add(ScoreMap.of(sources.get(s)));
+        }
+        for (ScoreFusion.Mode mode : ScoreFusion.Mode.values()) {
+            ScoreFusion fusion = new ScoreFusion(mode, ScoreFusion.Normalization.MIN_MAX);
+            assertEquals(mode.toString(), fusion.fuse(sources, null).toHashMap(), fusion.fuseScoreMaps(scoreMaps, null).toHashMap());
+        }
+    }
+
+    @Test
+    public void twoSourcesEqualCombineLinear() throws Exception {
+        Random random = new Random(3);
+        HashMap<String, Float> source1 = randomSource(random, 1000, 2000);
+        HashMap<String, Float> source2 = randomSource(random, 1000, 2000);
+        float alpha = 0.7f;
+        HashMap<String, Float> expected = new HashMap<>();
+        HashMapUtility.combineLinearTwoHashMap(source1, source2, alpha, expected);
+
+        List<HashMap<String, Float>> sources = new ArrayList<>();
+        sources.add(source1);
+        sources.add(source2);
+        ScoreFusion fusion = new ScoreFusion(ScoreFusion.Mode.COMB_SUM, ScoreFusion.Normalization.NONE);
+        assertEquals(expected, fusion.fuse(sources, new float[]{alpha, 1 - alpha}).toHashMap());
+    }
+
+    @Test
+    public void combMnzCountsOnlyNonZeroScores() throws Exception {
+        HashMap<String, Float> source1 = new HashMap<>();
+        source1.put("a", 2f);
+        source1.put("b", 0f);
+        source1.put("c", 1f);
+        HashMap<String, Float> source2 = new HashMap<>();
+        source2.put("a", 1f);
+        source2.put("b", 3f);
+        source2.put("c", null);
+
+        List<HashMap<String, Float>> sources = new ArrayList<>();
+        sources.add(source1);
+        sources.add(source2);
+        ScoreFusion fusion = new ScoreFusion(ScoreFusion.Mode.COMB_MNZ, ScoreFusion.Normalization.NONE);
+        ScoreMap<String> fused = fusion.fuse(sources, null);
+        assertEquals(6f, fused.get("a"), 0);
+        assertEquals(3f, fused.get("b"), 0);
+        assertEquals(1f, fused.get("c"), 0);
+    }
+
+    /**
+     * Keys drawn from [0, numKey), so sources overlap, and scores with ties.
+     */
+    private static HashMap<String, Float> randomSource(Random random, int size, int numKey) {
+        HashMap<String, Float> source = new HashMap<>();
+        while (source.size() < size) {
+            source.put("k" + random.nextInt(numKey), random.nextInt(1000) / 100f);
+        }
+        return source;
+    }
+}
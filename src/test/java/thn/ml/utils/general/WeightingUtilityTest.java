@@ -0,0 +1,114 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package thn.research.textutility.general;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Batch RPY and forgetting factor have to give exactly the scalar values, through the gap table or not,
+ * and parallel batches the same as sequential ones.
+ *
+ * @author THNghiep
+ */
+public class WeightingUtilityTest {
+
+    // Above the size where batches run in parallel.
+    private static final int LARGE_SIZE = 100000;
+    private static final double C = 0.9;
+    private static final double GAMMA = 0.3;
+
+    @Test
+    public void batchEqualsScalar() throws Exception {
+        Random random = new Random(42);
+        // Gaps within the table, gaps too large for the table, and invalid years.
+        for (int maxGap : new int[]{0, 50, 100000}) {
+            for (int y1 : new int[]{2016, -1}) {
+                int[] years = randomYears(random, 1000, 2016, maxGap);
+                double[] rpy = WeightingUtility.computeRPY(y1, years, C);
+                double[] ff = WeightingUtility.computeForgettingFactor(y1, years, GAMMA);
+                for (int i = 0; i < years.length; i++) {
+                    assertEquals(WeightingUtility.computeRPY(y1, years[i], C), rpy[i], 0);
+                    assertEquals(WeightingUtility.computeForgettingFactor(y1, years[i], GAMMA), ff[i], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void applyEqualsScalar() throws Exception {
+        Random random = new Random(7);
+        int[] years = randomYears(random, 1000, 2016, 50);
+        float[] scores = randomScores(random, years.length);
+        float[] rpyScores = scores.clone();
+        float[] ffScores = scores.clone();
+        WeightingUtility.applyRPY(2016, years, rpyScores, C);
+        WeightingUtility.applyForgettingFactor(2016, years, ffScores, GAMMA);
+        for (int i = 0; i < years.length; i++) {
+            assertEquals((float) (scores[i] * WeightingUtility.computeRPY(2016, years[i], C)), rpyScores[i], 0);
+            assertEquals((float) (scores[i] * WeightingUtility.computeForgettingFactor(2016, years[i], GAMMA)), ffScores[i], 0);
+        }
+    }
+
+    @Test
+    public void parallelEqualsSequential() throws Exception {
+        Random random = new Random(3);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // Gaps within the table and gaps too large for the table.
+            for (int maxGap : new int[]{50, 100000}) {
+                int[] years = randomYears(random, LARGE_SIZE, 2016, maxGap);
+                float[] scores = randomScores(random, years.length);
+                float[] expected = scores.clone();
+                float[] actual = scores.clone();
+                WeightingUtility.applyRPY(2016, years, expected, C);
+                WeightingUtility.applyRPYParallel(2016, years, actual, C, pool);
+                assertArrayEquals(expected, actual, 0);
+
+                expected = scores.clone();
+                actual = scores.clone();
+                WeightingUtility.applyForgettingFactor(2016, years, expected, GAMMA);
+                WeightingUtility.applyForgettingFactorParallel(2016, years, actual, GAMMA, pool);
+                assertArrayEquals(expected, actual, 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void lengthMismatchThrows() throws Exception {
+        try {
+            WeightingUtility.applyRPY(2016, new int[2], new float[3], C);
+            fail("Arrays of different lengths were accepted.");
+        } catch (Exception e) {
+            assertEquals("Years and scores have to be parallel arrays.", e.getMessage());
+        }
+    }
+
+    /**
+     * Years within maxGap of y1, about 1 in 20 invalid (-1).
+     */
+    private static int[] randomYears(Random random, int size, int y1, int maxGap) {
+        int[] years = new int[size];
+        for (int i = 0; i < size; i++) {
+            years[i] = (random.nextInt(20) == 0) ? -1 : y1 - maxGap + random.nextInt(2 * maxGap + 1);
+        }
+        return years;
+    }
+
+    private static float[] randomScores(Random random, int size) {
+        float[] scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = random.nextFloat();
+        }
+        return scores;
+    }
+}